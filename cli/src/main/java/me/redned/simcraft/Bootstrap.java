@@ -5,15 +5,15 @@ import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
 import joptsimple.util.PathConverter;
 import me.redned.simcraft.city.City;
-import me.redned.simcraft.city.placeable.BuildingData;
-import me.redned.simcraft.city.placeable.FloraData;
-import me.redned.simcraft.city.placeable.PropData;
-import me.redned.simcraft.city.schematic.CitySchematics;
+import me.redned.simcraft.city.exemplar.ExemplarIndex;
+import me.redned.simcraft.city.placeable.PlaceableStore;
 import me.redned.simcraft.city.world.CityRegion;
 import me.redned.simcraft.util.FileUtil;
 import me.redned.simcraft.util.GameInstallUtil;
 import me.redned.simcraft.util.OS;
-import me.redned.simreader.sc4.storage.exemplar.ExemplarFile;
+import me.redned.simcraft.util.heightmap.HeightStorage;
+import me.redned.simcraft.util.heightmap.SmoothingMode;
+import me.redned.simcraft.world.SectionStorage;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -45,6 +45,37 @@ public final class Bootstrap {
             .defaultsTo(Paths.get("output"));
 
     private static final OptionSpec<Void> DEBUG_SPEC = PARSER.acceptsAll(List.of("d", "debug"), "Enables debug mode.");
+    private static final OptionSpec<Integer> REGION_THREADS_SPEC = PARSER.acceptsAll(List.of("rt", "region-threads"), "Number of city regions to build at the same time.")
+            .withRequiredArg()
+            .ofType(Integer.class)
+            .defaultsTo(1);
+
+    private static final OptionSpec<Integer> LOAD_THREADS_SPEC = PARSER.acceptsAll(List.of("lt", "load-threads"), "Number of city saves to load at the same time.")
+            .withRequiredArg()
+            .ofType(Integer.class)
+            .defaultsTo(Runtime.getRuntime().availableProcessors());
+
+    private static final OptionSpec<Integer> TERRAIN_THREADS_SPEC = PARSER.acceptsAll(List.of("tt", "terrain-threads"), "Number of threads used to generate terrain.")
+            .withRequiredArg()
+            .ofType(Integer.class)
+            .defaultsTo(Math.max(1, Runtime.getRuntime().availableProcessors() * 3 / 8));
+
+    private static final OptionSpec<Void> VIRTUAL_THREADS_SPEC = PARSER.acceptsAll(List.of("vt", "virtual-threads"), "Generates terrain on virtual threads (requires Java 21+).");
+    private static final OptionSpec<Integer> STALL_TIMEOUT_SPEC = PARSER.acceptsAll(List.of("st", "stall-timeout"), "Seconds terrain generation or placeable placement can go without progress before it is cancelled.")
+            .withRequiredArg()
+            .ofType(Integer.class)
+            .defaultsTo(300);
+
+    private static final OptionSpec<Void> FAST_SMOOTHING_SPEC = PARSER.acceptsAll(List.of("fs", "fast-smoothing"), "Smooths terrain with box blurs, which are faster but only approximate the original smoothing.");
+
+    private static final OptionSpec<Void> COMPACT_HEIGHTMAPS_SPEC = PARSER.acceptsAll(List.of("ch", "compact-heightmaps"), "Stores terrain heightmaps in a compact form to reduce memory usage.");
+
+    private static final OptionSpec<Void> REGION_HEIGHTMAP_SPEC = PARSER.acceptsAll(List.of("rh", "region-heightmap"), "Smooths the terrain of every city together so it blends across city borders (implies fast smoothing).");
+
+    private static final OptionSpec<Void> STREAM_REGIONS_SPEC = PARSER.acceptsAll(List.of("sr", "stream-regions"), "Writes each region file as soon as its cities are built to reduce memory usage.");
+
+    private static final OptionSpec<Void> MAPPED_SECTIONS_SPEC = PARSER.acceptsAll(List.of("ms", "mapped-sections"), "Stores block data in a memory mapped file rather than on the heap.");
+
     private static final OptionSpec<Void> PRINT_MISSING_SPEC = PARSER.acceptsAll(List.of("pm", "print-missing"), "Prints various missing information.");
 
     public static void main(String[] args) throws IOException {
@@ -90,28 +121,32 @@ public final class Bootstrap {
 
         Files.createDirectories(outputDir);
 
-        ExemplarFile exemplarFile = new ExemplarFile(exemplarPath);
-
-        SimCraft simCraft = new SimCraft(citiesDir, exemplarFile, outputDir, debug);
+        ExemplarIndex exemplarIndex = SimCraft.loadExemplarIndex(exemplarPath);
+
+        SimCraftSettings settings = SimCraftSettings.builder()
+                .debug(debug)
+                .regionThreads(getThreads(optionSet, REGION_THREADS_SPEC, "region-threads"))
+                .loadThreads(getThreads(optionSet, LOAD_THREADS_SPEC, "load-threads"))
+                .terrainThreads(getThreads(optionSet, TERRAIN_THREADS_SPEC, "terrain-threads"))
+                .virtualThreads(optionSet.has(VIRTUAL_THREADS_SPEC))
+                .stallTimeout(optionSet.valueOf(STALL_TIMEOUT_SPEC))
+                .smoothingMode(optionSet.has(FAST_SMOOTHING_SPEC) || optionSet.has(REGION_HEIGHTMAP_SPEC) ? SmoothingMode.BOX_BLUR : SmoothingMode.ITERATIVE)
+                .heightStorage(optionSet.has(COMPACT_HEIGHTMAPS_SPEC) ? HeightStorage.Type.COMPACT : HeightStorage.Type.FLOAT)
+                .heightMapMosaic(optionSet.has(REGION_HEIGHTMAP_SPEC))
+                .streamRegions(optionSet.has(STREAM_REGIONS_SPEC))
+                .sectionStorage(optionSet.has(MAPPED_SECTIONS_SPEC) ? SectionStorage.Type.MAPPED : SectionStorage.Type.HEAP)
+                .build();
+
+        SimCraft simCraft = new SimCraft(citiesDir, exemplarIndex, outputDir, settings);
         if (optionSet.has(PRINT_MISSING_SPEC)) {
             List<String> missingPlaceables = new ArrayList<>();
             for (CityRegion region : simCraft.getLevel().getRegions()) {
                 City city = region.getCity();
-                for (BuildingData building : city.getBuildings()) {
-                    if (CitySchematics.getSchematic(building.getIdentifier()) == null) {
-                        missingPlaceables.add("Building - " + building.getIdentifier());
-                    }
-                }
-
-                for (PropData prop : city.getProps()) {
-                    if (CitySchematics.getSchematic(prop.getIdentifier()) == null) {
-                        missingPlaceables.add("Prop - " + prop.getIdentifier());
-                    }
-                }
-
-                for (FloraData flora : city.getFlora()) {
-                    if (CitySchematics.getSchematic(flora.getIdentifier()) == null) {
-                        missingPlaceables.add("Flora - " + flora.getIdentifier());
+                for (PlaceableStore placeables : List.of(city.getBuildings(), city.getProps(), city.getFlora())) {
+                    for (int i = 0; i < placeables.size(); i++) {
+                        if (placeables.getSchematic(i) == null) {
+                            missingPlaceables.add(placeables.getType().getDisplayName() + " - " + placeables.getIdentifier(i));
+                        }
                     }
                 }
 
@@ -151,4 +186,13 @@ public final class Bootstrap {
             System.out.println("City \"" + region.getCity().getName() + "\" can be found at coordinates: " + region.getMinPosition());
         }
     }
+
+    private static int getThreads(OptionSet optionSet, OptionSpec<Integer> spec, String name) {
+        int threads = optionSet.valueOf(spec);
+        if (threads < 1) {
+            throw new RuntimeException("The " + name + " option must be at least 1, but was " + threads + "!");
+        }
+
+        return threads;
+    }
 }
@@ -12,4 +12,30 @@ dependencies {
 
     compileOnly("org.projectlombok:lombok:1.18.24")
     annotationProcessor("org.projectlombok:lombok:1.18.24")
-}
\ No newline at end of file
+
+    testImplementation("org.junit.jupiter:junit-jupiter:5.9.1")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.9.1")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+// The vectorized heightmap kernels use the incubating Vector API, so they are compiled
+// on their own with the module enabled, keeping the incubator warning out of the main
+// compile. They are only loaded at runtime when the module is enabled.
+val vector: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
+tasks.named<JavaCompile>(vector.compileJavaTaskName) {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+tasks.jar {
+    from(vector.output)
+}
+
+tasks.shadowJar {
+    from(vector.output)
+}
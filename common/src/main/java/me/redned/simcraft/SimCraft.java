@@ -6,8 +6,11 @@ import me.redned.levelparser.LevelParser;
 import me.redned.levelparser.anvil.AnvilLevel;
 import me.redned.levelparser.anvil.io.AnvilLevelWriter;
 import me.redned.simcraft.city.City;
+import me.redned.simcraft.city.exemplar.ExemplarCache;
+import me.redned.simcraft.city.exemplar.ExemplarIndex;
 import me.redned.simcraft.city.world.CityLevel;
 import me.redned.simcraft.util.FileUtil;
+import me.redned.simcraft.util.concurrent.NamedThreadFactory;
 import me.redned.simreader.sc4.storage.SC4File;
 import me.redned.simreader.sc4.storage.exemplar.ExemplarFile;
 
@@ -18,12 +21,20 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 @Getter
 public class SimCraft {
     private static final String SAVEGAME_EXTENSION = ".sc4";
+    private static final Path EXEMPLAR_INDEX_PATH = Path.of("cache", "exemplar_index.bin");
 
     private final List<City> cities;
     private final CityLevel level;
@@ -32,21 +43,18 @@ public class SimCraft {
     private final Path outputPath;
 
     public SimCraft(Path cityPath, ExemplarFile exemplarFile, Path outputPath, boolean debug) throws IOException {
-        List<City> cities = new ArrayList<>();
-        try (Stream<Path> paths = Files.walk(cityPath)) {
-            paths.forEach(path -> {
-                if (path.toString().endsWith(SAVEGAME_EXTENSION)) {
-                    try {
-                        cities.add(new City(new SC4File(path), exemplarFile));
-                    } catch (IOException ex) {
-                        throw new RuntimeException(ex);
-                    }
-                }
-            });
-        }
+        this(cityPath, exemplarFile, outputPath, SimCraftSettings.builder().debug(debug).build());
+    }
+
+    public SimCraft(Path cityPath, ExemplarFile exemplarFile, Path outputPath, SimCraftSettings settings) throws IOException {
+        this(cityPath, ExemplarIndex.of(exemplarFile), outputPath, settings);
+    }
+
+    public SimCraft(Path cityPath, ExemplarIndex exemplarIndex, Path outputPath, SimCraftSettings settings) throws IOException {
+        List<City> cities = loadCities(cityPath, exemplarIndex, settings.getLoadThreads());
 
         this.cities = cities;
-        this.level = new CityLevel(cities, debug);
+        this.level = new CityLevel(cities, outputPath, settings);
 
         this.parser = LevelParser.<AnvilLevel>builder()
                 .output(outputPath)
@@ -56,17 +64,95 @@ public class SimCraft {
         this.outputPath = outputPath;
     }
 
+    /**
+     * Loads the index of the given SimCity exemplar file, reusing
+     * the index written by an earlier run if the exemplar file has
+     * not changed since.
+     *
+     * @param exemplarPath the path to the exemplar file
+     * @return the index of the exemplar file
+     * @throws IOException if the index could not be loaded
+     */
+    public static ExemplarIndex loadExemplarIndex(Path exemplarPath) throws IOException {
+        return ExemplarIndex.load(exemplarPath, EXEMPLAR_INDEX_PATH);
+    }
+
+    private static List<City> loadCities(Path cityPath, ExemplarIndex exemplarIndex, int threads) throws IOException {
+        List<Path> savePaths;
+        try (Stream<Path> paths = Files.walk(cityPath)) {
+            savePaths = paths.filter(path -> path.toString().endsWith(SAVEGAME_EXTENSION)).toList();
+        }
+
+        if (savePaths.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Shared by every city, since many placeables across cities use the same exemplars
+        ExemplarCache exemplarCache = new ExemplarCache(exemplarIndex);
+
+        // Parsing each save file and building its city model is independent
+        // of every other save, so load them alongside each other
+        ExecutorService threadPool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, savePaths.size())), new NamedThreadFactory("City Loader"));
+        try {
+            CompletionService<LoadedCity> completionService = new ExecutorCompletionService<>(threadPool);
+            for (int i = 0; i < savePaths.size(); i++) {
+                int index = i;
+                Path path = savePaths.get(i);
+
+                completionService.submit(() -> {
+                    long startTime = System.nanoTime();
+                    try {
+                        City city = new City(new SC4File(path), exemplarCache);
+                        return new LoadedCity(index, city, System.nanoTime() - startTime);
+                    } catch (Exception ex) {
+                        throw new IOException("Failed to load city save " + path, ex);
+                    }
+                });
+            }
+
+            City[] cities = new City[savePaths.size()];
+            for (int i = 0; i < savePaths.size(); i++) {
+                LoadedCity loadedCity;
+                try {
+                    loadedCity = completionService.take().get();
+                } catch (ExecutionException ex) {
+                    // Fail on the first save that could not be loaded rather
+                    // than waiting on the rest of the saves to finish
+                    if (ex.getCause() instanceof IOException ioException) {
+                        throw ioException;
+                    }
+
+                    throw new IOException("Failed to load city save", ex.getCause());
+                }
+
+                cities[loadedCity.index()] = loadedCity.city();
+                System.out.println("Loaded city \"" + loadedCity.city().getName() + "\" (" + savePaths.get(loadedCity.index()).getFileName() + ") in " + TimeUnit.NANOSECONDS.toMillis(loadedCity.loadTime()) + "ms");
+            }
+
+            System.out.println("Resolved exemplars with " + exemplarCache.getHits() + " cache hits and " + exemplarCache.getMisses() + " misses");
+
+            // Keep the cities in the order they were discovered in
+            return new ArrayList<>(List.of(cities));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading city saves", ex);
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
     public void buildRegions(Consumer<RegionBuildState> consumer) {
         RegionBuildState buildState = new RegionBuildState();
-        buildState.setBuildState(BuildState.INITIALIZING);
-
         consumer.accept(buildState);
 
         this.level.buildRegions(buildState);
     }
 
     public void save() throws IOException {
+        // The level itself only holds the level data, as chunks are written separately
         this.parser.writeLevel(this.level.getLevel());
+        this.level.writeRegions();
+        this.level.close();
 
         // Include our datapack that increases the world height
         try {
@@ -88,22 +174,55 @@ public class SimCraft {
 
     @Data
     public static class RegionBuildState {
+        private final List<CityBuildState> cities = new CopyOnWriteArrayList<>();
         private int regions;
-        private int currentRegion;
-        private String cityName;
 
-        private BuildState buildState;
-        private double progress;
+        public int getCompletedRegions() {
+            return (int) this.cities.stream().filter(CityBuildState::isComplete).count();
+        }
+
+        public List<CityBuildState> getActiveCities() {
+            return this.cities.stream()
+                    .filter(city -> !city.isComplete() && city.getBuildState() != BuildState.INITIALIZING)
+                    .toList();
+        }
+
+        public double getProgress() {
+            if (this.regions == 0) {
+                return 0;
+            }
 
-        public void setBuildState(BuildState buildState) {
-            this.buildState = buildState;
+            return this.cities.stream().mapToDouble(CityBuildState::getTotalProgress).sum() / this.regions;
         }
+    }
 
-        public void setProgress(double progress) {
-            this.progress = progress;
+    @Data
+    public static class CityBuildState {
+        private final int region;
+        private final String cityName;
+
+        private volatile BuildState buildState = BuildState.INITIALIZING;
+        private volatile double progress;
+        private volatile boolean complete;
+
+        public double getTotalProgress() {
+            if (this.complete) {
+                return 1;
+            }
+
+            if (this.buildState == BuildState.INITIALIZING) {
+                return 0;
+            }
+
+            // Every stage after initializing counts equally towards the total
+            int stages = BuildState.values().length - 1;
+            return ((this.buildState.ordinal() - 1) + this.progress) / stages;
         }
     }
 
+    private record LoadedCity(int index, City city, long loadTime) {
+    }
+
     public enum BuildState {
         INITIALIZING,
         TERRAIN,
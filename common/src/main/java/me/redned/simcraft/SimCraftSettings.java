@@ -0,0 +1,99 @@
+package me.redned.simcraft;
+
+import lombok.Builder;
+import lombok.Getter;
+import me.redned.simcraft.util.heightmap.HeightStorage;
+import me.redned.simcraft.util.heightmap.SmoothingMode;
+import me.redned.simcraft.world.SectionStorage;
+
+/**
+ * Settings used when converting cities with SimCraft.
+ */
+@Getter
+@Builder
+public class SimCraftSettings {
+    public static final SimCraftSettings DEFAULT = SimCraftSettings.builder().build();
+
+    /**
+     * If debug mode is enabled.
+     */
+    private final boolean debug;
+
+    /**
+     * The amount of city regions that are built at the same
+     * time. Each region writes to its own block of chunks, so
+     * regions can safely be built alongside one another.
+     */
+    @Builder.Default
+    private final int regionThreads = 1;
+
+    /**
+     * The maximum amount of city saves that are
+     * parsed at the same time.
+     */
+    @Builder.Default
+    private final int loadThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The amount of threads used to generate terrain. These
+     * threads are shared between every city region.
+     */
+    @Builder.Default
+    private final int terrainThreads = Math.max(1, Runtime.getRuntime().availableProcessors() * 3 / 8);
+
+    /**
+     * If terrain should be generated on virtual threads
+     * rather than a fixed amount of threads, when the
+     * Java version supports them.
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * The amount of seconds terrain generation can go
+     * without making any progress before it is cancelled.
+     */
+    @Builder.Default
+    private final int stallTimeout = 300;
+
+    /**
+     * The method used to smooth the terrain heightmap. Box
+     * blurs are much faster, but only approximate the iterative
+     * passes, so some terrain ends up a block higher or lower.
+     */
+    @Builder.Default
+    private final SmoothingMode smoothingMode = SmoothingMode.ITERATIVE;
+
+    /**
+     * How the terrain heightmap of each city is stored
+     * once it has been smoothed.
+     */
+    @Builder.Default
+    private final HeightStorage.Type heightStorage = HeightStorage.Type.FLOAT;
+
+    /**
+     * If the heightmaps of every city are placed into one
+     * heightmap for the whole region and smoothed together,
+     * so terrain blends across the borders between cities.
+     * The region heightmap is memory mapped and smoothed with
+     * box blurs, so the smoothing mode must be box blurs. Each
+     * city copies its part into its own height storage, and the
+     * region heightmap is released once every city is built.
+     */
+    private final boolean heightMapMosaic;
+
+    /**
+     * If each region file is written out as soon as every
+     * city touching it has been built, rather than once the
+     * whole region has been built. Cities are then built in
+     * the order of the region files they cover, so only the
+     * chunks around the cities being built are kept in memory.
+     */
+    private final boolean streamRegions;
+
+    /**
+     * Where the block data of each chunk section is stored
+     * while cities are being built.
+     */
+    @Builder.Default
+    private final SectionStorage.Type sectionStorage = SectionStorage.Type.HEAP;
+}
@@ -1,14 +1,13 @@
 package me.redned.simcraft.city;
 
 import lombok.Getter;
-import me.redned.simcraft.city.placeable.BuildingData;
-import me.redned.simcraft.city.placeable.FloraData;
+import me.redned.simcraft.city.exemplar.ExemplarCache;
 import me.redned.simcraft.city.lot.LotData;
-import me.redned.simcraft.city.placeable.PropData;
+import me.redned.simcraft.city.placeable.PlaceableStore;
+import me.redned.simcraft.city.placeable.PlaceableType;
 import me.redned.simcraft.city.network.NetworkTile1Data;
 import me.redned.simcraft.city.network.NetworkTile2Data;
 import me.redned.simreader.sc4.storage.SC4File;
-import me.redned.simreader.sc4.storage.exemplar.ExemplarFile;
 import me.redned.simreader.sc4.storage.type.RegionViewSubfile;
 import me.redned.simreader.sc4.type.Building;
 import me.redned.simreader.sc4.type.Flora;
@@ -29,16 +28,18 @@ import java.util.Map;
  * This class primarily holds city data from
  * the SimCity save file and handles mapping
  * much of it to a Minecraft save.
+ * <p>
+ * Only the data needed to build the city is copied
+ * out of the save, so the save itself can be released
+ * once the city has been loaded.
  */
 @Getter
 public class City {
-    private final SC4File saveFile;
-    private final ExemplarFile exemplarFile;
-    private final RegionViewSubfile regionView;
+    private final String name;
 
-    private final List<BuildingData> buildings = new ArrayList<>();
-    private final List<PropData> props = new ArrayList<>();
-    private final List<FloraData> flora = new ArrayList<>();
+    private final PlaceableStore buildings;
+    private final PlaceableStore props;
+    private final PlaceableStore flora;
     private final List<LotData> lots = new ArrayList<>();
     private final List<NetworkTile1Data> networkTile1s = new ArrayList<>();
     private final List<NetworkTile2Data> networkTile2s = new ArrayList<>();
@@ -46,40 +47,59 @@ public class City {
     private final Vector2i dimensions;
     private final Vector2i tilePosition;
 
-    public City(SC4File saveFile, ExemplarFile exemplarFile) {
-        this.saveFile = saveFile;
-        this.exemplarFile = exemplarFile;
+    // The only part of the save kept after loading, so the rest can be released
+    private final float[][] heightMap;
 
-        this.regionView = saveFile.getRegionViewFile();
+    public City(SC4File saveFile, ExemplarCache exemplarCache) {
+        RegionViewSubfile regionView = saveFile.getRegionViewFile();
 
-        Map<Integer, BuildingData> buildingsByIId = new HashMap<>();
+        PlaceableStore.Builder buildings = PlaceableStore.builder(PlaceableType.BUILDING, true, false);
+        Map<Integer, Building> buildingsByIId = new HashMap<>();
         if (saveFile.getBuildingFile() != null) {
             for (Building building : saveFile.getBuildingFile().getBuildings()) {
-                BuildingData buildingData = new BuildingData(building, exemplarFile);
-                this.buildings.add(buildingData);
-
-                buildingsByIId.put(building.getInstanceId(), buildingData);
+                buildings.add(
+                        exemplarCache.getName(building.getResourceKey(), PlaceableType.BUILDING, building),
+                        building.getMinCoordinateX(), building.getMinCoordinateY(), building.getMinCoordinateZ(),
+                        building.getMaxCoordinateX(), building.getMaxCoordinateY(), building.getMaxCoordinateZ(),
+                        building.getOrientation(), building.getAppearanceFlag(), 100
+                );
+
+                buildingsByIId.put(building.getInstanceId(), building);
             }
         }
 
+        PlaceableStore.Builder props = PlaceableStore.builder(PlaceableType.PROP, true, true);
         if (saveFile.getPropFile() != null) {
             for (Prop prop : saveFile.getPropFile().getProps()) {
-                this.props.add(new PropData(prop, exemplarFile));
+                props.add(
+                        exemplarCache.getName(prop.getResourceKey(), PlaceableType.PROP, prop),
+                        prop.getMinCoordinateX(), prop.getMinCoordinateY(), prop.getMinCoordinateZ(),
+                        prop.getMaxCoordinateX(), prop.getMaxCoordinateY(), prop.getMaxCoordinateZ(),
+                        prop.getOrientation(), prop.getAppearanceFlag(), prop.getAppearanceChance()
+                );
             }
         }
 
+        PlaceableStore.Builder flora = PlaceableStore.builder(PlaceableType.FLORA, false, false);
         if (saveFile.getFloraFile() != null) {
-            for (Flora flora : saveFile.getFloraFile().getFlora()) {
-                this.flora.add(new FloraData(flora, exemplarFile));
+            for (Flora floraEntry : saveFile.getFloraFile().getFlora()) {
+                flora.add(
+                        exemplarCache.getName(floraEntry.getResourceKey(), PlaceableType.FLORA, floraEntry),
+                        floraEntry.getCoordinateX(), floraEntry.getCoordinateY(), floraEntry.getCoordinateZ(),
+                        floraEntry.getOrientation(), floraEntry.getAppearanceFlag()
+                );
             }
         }
 
+        this.buildings = buildings.build();
+        this.props = props.build();
+        this.flora = flora.build();
+
         if (saveFile.getLotFile() != null) {
             for (Lot lot : saveFile.getLotFile().getLots()) {
-                this.lots.add(new LotData(lot, buildingsByIId.get(lot.getBuildingInstanceId()), exemplarFile));
+                this.lots.add(new LotData(lot, buildingsByIId.get(lot.getBuildingInstanceId()), exemplarCache));
             }
         }
-
         if (saveFile.getNetworkTile1File() != null) {
             for (NetworkTile1 tile : saveFile.getNetworkTile1File().getNetworkTiles()) {
                 if (tile.getMinCoordinateX() < 0 || tile.getMinCoordinateY() < 0 || tile.getMinCoordinateZ() < 0) {
@@ -102,15 +122,9 @@ public class City {
             }
         }
 
-        this.dimensions = Vector2i.from(this.regionView.getCitySizeX(), this.regionView.getCitySizeY());
-        this.tilePosition = Vector2i.from(this.regionView.getTileXLocation(), this.regionView.getTileYLocation());
-    }
-
-    public String getName() {
-        return this.regionView.getCityName();
-    }
-
-    public float[][] getHeightMap() {
-        return this.saveFile.getTerrainFile().getHeightMap();
+        this.name = regionView.getCityName();
+        this.dimensions = Vector2i.from(regionView.getCitySizeX(), regionView.getCitySizeY());
+        this.tilePosition = Vector2i.from(regionView.getTileXLocation(), regionView.getTileYLocation());
+        this.heightMap = saveFile.getTerrainFile().getHeightMap();
     }
 }
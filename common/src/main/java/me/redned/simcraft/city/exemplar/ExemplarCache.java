@@ -0,0 +1,91 @@
+package me.redned.simcraft.city.exemplar;
+
+import lombok.Getter;
+import me.redned.simcraft.city.placeable.PlaceableType;
+import me.redned.simreader.sc4.type.occupant.OccupantGroupType;
+import me.redned.simreader.storage.model.PersistResourceKeyData;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the exemplar properties used when loading cities,
+ * keyed by the resource key of the exemplar.
+ * <p>
+ * Many placeables share the same exemplar, so each exemplar is
+ * only decoded the first time it is requested. Every city shares
+ * the same resolved names and occupant lists, and the cache can
+ * be used from any thread.
+ */
+public class ExemplarCache {
+    @Getter
+    private final ExemplarIndex index;
+
+    private final Map<PersistResourceKeyData, String> names = new ConcurrentHashMap<>();
+    private final Map<PersistResourceKeyData, List<OccupantGroupType>> occupants = new ConcurrentHashMap<>();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ExemplarCache(ExemplarIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Gets the name of the exemplar with the given resource key,
+     * which is used as the identifier of a placeable.
+     *
+     * @param resourceKey the resource key of the placeable
+     * @param type the type of the placeable
+     * @param placeable the placeable, used when reporting errors
+     * @return the name of the exemplar
+     */
+    public String getName(PersistResourceKeyData resourceKey, PlaceableType type, Object placeable) {
+        this.lookups.increment();
+        return this.names.computeIfAbsent(resourceKey, key -> {
+            this.misses.increment();
+
+            ExemplarIndex.Entry entry = this.getEntry(key, type.getDisplayName());
+            if (entry.name() == null) {
+                throw new IllegalArgumentException("No name property existed for " + type.getDisplayName().toLowerCase() + " " + placeable + " in exemplar properties!");
+            }
+
+            return entry.name();
+        });
+    }
+
+    /**
+     * Gets the occupant groups of the building exemplar with
+     * the given resource key.
+     *
+     * @param resourceKey the resource key of the building
+     * @return the occupant groups of the building
+     */
+    public List<OccupantGroupType> getOccupants(PersistResourceKeyData resourceKey) {
+        this.lookups.increment();
+        return this.occupants.computeIfAbsent(resourceKey, key -> {
+            this.misses.increment();
+
+            return this.getEntry(key, PlaceableType.BUILDING.getDisplayName()).occupants();
+        });
+    }
+
+    public long getHits() {
+        return this.lookups.sum() - this.misses.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    private ExemplarIndex.Entry getEntry(PersistResourceKeyData resourceKey, String type) {
+        ExemplarIndex.Entry entry = this.index.getEntry(resourceKey);
+        if (entry == null) {
+            throw new IllegalArgumentException(type + " with key " + resourceKey + " not found in SimCity exemplar!");
+        }
+
+        return entry;
+    }
+}
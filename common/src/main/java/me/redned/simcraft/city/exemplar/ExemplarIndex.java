@@ -0,0 +1,287 @@
+package me.redned.simcraft.city.exemplar;
+
+import me.redned.simreader.sc4.storage.exemplar.ExemplarFile;
+import me.redned.simreader.sc4.storage.exemplar.property.ExemplarPropertyTypes;
+import me.redned.simreader.sc4.storage.exemplar.property.type.OccupantGroupTypesProperty;
+import me.redned.simreader.sc4.storage.exemplar.property.type.StringProperty;
+import me.redned.simreader.sc4.storage.exemplar.type.ExemplarSubfile;
+import me.redned.simreader.sc4.type.occupant.OccupantGroupType;
+import me.redned.simreader.storage.model.PersistResourceKeyData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the exemplar properties SimCraft uses, keyed
+ * by the resource key of each exemplar.
+ * <p>
+ * Parsing the full SimCity exemplar file is slow, so the index is
+ * written to disk the first time it is built and read on later runs
+ * instead. The index stores the size and modification time of the
+ * exemplar file it was built from, and is rebuilt if either no
+ * longer match.
+ * <p>
+ * Entries are sorted by the type, group and instance of their
+ * resource key, and found with a binary search.
+ */
+public class ExemplarIndex {
+    private static final int MAGIC = 0x53434558; // SCEX
+    private static final int VERSION = 2;
+
+    private static final short NO_NAME = -1;
+
+    private final int[] types;
+    private final int[] groups;
+    private final int[] instances;
+    private final Entry[] entries;
+
+    private ExemplarIndex(int[] types, int[] groups, int[] instances, Entry[] entries) {
+        this.types = types;
+        this.groups = groups;
+        this.instances = instances;
+        this.entries = entries;
+    }
+
+    /**
+     * Gets the entry of the exemplar with the given resource key.
+     *
+     * @param resourceKey the resource key of the exemplar
+     * @return the entry of the exemplar, or null if no exemplar has the given key
+     */
+    public Entry getEntry(PersistResourceKeyData resourceKey) {
+        int type = resourceKey.getType();
+        int group = resourceKey.getGroup();
+        int instance = resourceKey.getInstance();
+
+        int low = 0;
+        int high = this.entries.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(this.types[middle], this.groups[middle], this.instances[middle], type, group, instance);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return this.entries[middle];
+            }
+        }
+
+        return null;
+    }
+
+    public int size() {
+        return this.entries.length;
+    }
+
+    /**
+     * Creates an index from an already parsed exemplar file,
+     * without writing it to disk.
+     *
+     * @param exemplarFile the exemplar file
+     * @return the index of the exemplar file
+     */
+    public static ExemplarIndex of(ExemplarFile exemplarFile) {
+        List<Map.Entry<PersistResourceKeyData, ExemplarSubfile>> exemplars = new ArrayList<>(exemplarFile.getExemplarFiles().entrySet());
+        exemplars.sort(Map.Entry.comparingByKey(Comparator.comparingInt(PersistResourceKeyData::getType)
+                .thenComparingInt(PersistResourceKeyData::getGroup)
+                .thenComparingInt(PersistResourceKeyData::getInstance)));
+
+        int count = exemplars.size();
+        int[] types = new int[count];
+        int[] groups = new int[count];
+        int[] instances = new int[count];
+        Entry[] entries = new Entry[count];
+        for (int i = 0; i < count; i++) {
+            PersistResourceKeyData key = exemplars.get(i).getKey();
+            ExemplarSubfile subfile = exemplars.get(i).getValue();
+
+            StringProperty.Single name = subfile.getProperty(ExemplarPropertyTypes.EXEMPLAR_NAME);
+            OccupantGroupTypesProperty occupants = subfile.getProperty(ExemplarPropertyTypes.OCCUPANT_GROUPS);
+
+            types[i] = key.getType();
+            groups[i] = key.getGroup();
+            instances[i] = key.getInstance();
+            entries[i] = new Entry(
+                    name != null ? name.getValue() : null,
+                    occupants != null ? List.copyOf(occupants.getOccupants()) : List.of()
+            );
+        }
+
+        return new ExemplarIndex(types, groups, instances, entries);
+    }
+
+    /**
+     * Loads the index of the given exemplar file from the given
+     * index path, building and writing a new index if there is no
+     * index or the exemplar file has changed since it was written.
+     *
+     * @param exemplarPath the path to the exemplar file
+     * @param indexPath the path to the index
+     * @return the index of the exemplar file
+     * @throws IOException if the index could not be read or written
+     */
+    public static ExemplarIndex load(Path exemplarPath, Path indexPath) throws IOException {
+        long size = Files.size(exemplarPath);
+        long lastModified = Files.getLastModifiedTime(exemplarPath).toMillis();
+
+        if (Files.exists(indexPath)) {
+            ExemplarIndex index = read(indexPath, size, lastModified);
+            if (index != null) {
+                return index;
+            }
+
+            System.out.println("Exemplar file has changed since it was indexed, rebuilding index...");
+        }
+
+        long startTime = System.currentTimeMillis();
+        ExemplarIndex index = of(new ExemplarFile(exemplarPath));
+        index.write(indexPath, size, lastModified);
+
+        System.out.println("Indexed " + index.size() + " exemplars in " + (System.currentTimeMillis() - startTime) + "ms");
+        return index;
+    }
+
+    private static ExemplarIndex read(Path indexPath, long size, long lastModified) throws IOException {
+        // Read as a stream, so the file is not left open or mapped once loaded and can be replaced
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (input.readInt() != MAGIC
+                    || input.readInt() != VERSION
+                    || input.readLong() != size
+                    || input.readLong() != lastModified) {
+                return null;
+            }
+
+            Map<String, OccupantGroupType> occupantTypesByName = new HashMap<>();
+            for (OccupantGroupType type : OccupantGroupType.values()) {
+                occupantTypesByName.put(type.name(), type);
+            }
+
+            // Each entry takes at least 16 bytes, so a larger count is never an index we wrote
+            int count = input.readInt();
+            if (count < 0 || count > Files.size(indexPath) / 16) {
+                return null;
+            }
+
+            int[] types = new int[count];
+            int[] groups = new int[count];
+            int[] instances = new int[count];
+            Entry[] entries = new Entry[count];
+            for (int i = 0; i < count; i++) {
+                types[i] = input.readInt();
+                groups[i] = input.readInt();
+                instances[i] = input.readInt();
+
+                // Entries are written sorted, anything else is not an index we wrote
+                if (i > 0 && compare(types[i - 1], groups[i - 1], instances[i - 1], types[i], groups[i], instances[i]) >= 0) {
+                    return null;
+                }
+
+                String name = readString(input);
+
+                int occupantCount = input.readShort() & 0xFFFF;
+                List<OccupantGroupType> occupants = new ArrayList<>(occupantCount);
+                for (int j = 0; j < occupantCount; j++) {
+                    OccupantGroupType type = occupantTypesByName.get(readString(input));
+                    if (type != null) {
+                        occupants.add(type);
+                    }
+                }
+
+                entries[i] = new Entry(name, List.copyOf(occupants));
+            }
+
+            return new ExemplarIndex(types, groups, instances, entries);
+        } catch (EOFException | RuntimeException ex) {
+            // A truncated or otherwise unreadable index is rebuilt
+            System.err.println("Failed to read exemplar index at " + indexPath + ": " + ex);
+            return null;
+        }
+    }
+
+    private void write(Path indexPath, long size, long lastModified) throws IOException {
+        Path parent = indexPath.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        // Written to a temporary file first so a partially written index is never read
+        Path tempPath = Files.createTempFile(parent, "exemplar", ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(size);
+            output.writeLong(lastModified);
+            output.writeInt(this.entries.length);
+
+            for (int i = 0; i < this.entries.length; i++) {
+                output.writeInt(this.types[i]);
+                output.writeInt(this.groups[i]);
+                output.writeInt(this.instances[i]);
+                writeString(output, this.entries[i].name());
+
+                List<OccupantGroupType> occupants = this.entries[i].occupants();
+                output.writeShort(occupants.size());
+                for (OccupantGroupType occupant : occupants) {
+                    writeString(output, occupant.name());
+                }
+            }
+        }
+
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static int compare(int firstType, int firstGroup, int firstInstance, int secondType, int secondGroup, int secondInstance) {
+        if (firstType != secondType) {
+            return Integer.compare(firstType, secondType);
+        }
+
+        if (firstGroup != secondGroup) {
+            return Integer.compare(firstGroup, secondGroup);
+        }
+
+        return Integer.compare(firstInstance, secondInstance);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        short length = input.readShort();
+        if (length == NO_NAME) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length & 0xFFFF];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeShort(NO_NAME);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * The properties of a single exemplar.
+     *
+     * @param name the name of the exemplar, or null if it has none
+     * @param occupants the occupant groups of the exemplar
+     */
+    public record Entry(String name, List<OccupantGroupType> occupants) {
+    }
+}
@@ -0,0 +1,357 @@
+package me.redned.simcraft.city.placeable;
+
+import lombok.Getter;
+import me.redned.simcraft.city.schematic.CitySchematics;
+import me.redned.simcraft.city.schematic.SchematicHandle;
+import me.redned.simcraft.util.MathUtil;
+import org.cloudburstmc.math.GenericMath;
+import org.cloudburstmc.math.vector.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Compact storage for every placeable of a single type
+ * within a city.
+ * <p>
+ * Rather than an object per placeable, each property is stored
+ * in its own primitive array, indexed by the placeable. Identifiers
+ * are interned, so each placeable only stores the id of its
+ * identifier within this store, and each identifier is resolved
+ * to its schematic once.
+ * <p>
+ * Placeables are ordered by the Morton (Z-order) code of the chunk
+ * their min position falls in, so iterating them in order keeps
+ * consecutive placeables close to one another in the world. The
+ * save file order of each placeable is kept, as placeables that
+ * overlap must still be pasted in that order.
+ */
+public class PlaceableStore {
+    private static final int VISIBLE_FLAG = 0x01;
+    private static final int BURNT_FLAG = 0x40;
+
+    @Getter
+    private final PlaceableType type;
+    private final int size;
+
+    private final String[] identifiers;
+    // The schematic of each identifier, or null if there is none
+    private final SchematicHandle[] schematics;
+    private final int[] identifierIds;
+    // The index of each placeable in the save file
+    private final int[] saveIndices;
+
+    private final float[] minX;
+    private final float[] minY;
+    private final float[] minZ;
+    // The same arrays as the min positions for placeables without a size
+    private final float[] maxX;
+    private final float[] maxY;
+    private final float[] maxZ;
+
+    private final byte[] orientations;
+    private final byte[] appearanceFlags;
+    // Only present for placeables that may randomly not appear
+    private final byte[] appearanceChances;
+
+    private PlaceableStore(Builder builder, int[] order) {
+        this.type = builder.type;
+        this.size = order.length;
+        this.identifiers = builder.identifiers.toArray(String[]::new);
+        this.schematics = new SchematicHandle[this.identifiers.length];
+        for (int i = 0; i < this.identifiers.length; i++) {
+            this.schematics[i] = CitySchematics.getHandle(this.identifiers[i]);
+        }
+
+        this.identifierIds = reorder(builder.identifierIds, order);
+        this.saveIndices = order;
+        this.minX = reorder(builder.minX, order);
+        this.minY = reorder(builder.minY, order);
+        this.minZ = reorder(builder.minZ, order);
+        if (builder.sized) {
+            this.maxX = reorder(builder.maxX, order);
+            this.maxY = reorder(builder.maxY, order);
+            this.maxZ = reorder(builder.maxZ, order);
+        } else {
+            this.maxX = this.minX;
+            this.maxY = this.minY;
+            this.maxZ = this.minZ;
+        }
+
+        this.orientations = reorder(builder.orientations, order);
+        this.appearanceFlags = reorder(builder.appearanceFlags, order);
+        this.appearanceChances = builder.chanced ? reorder(builder.appearanceChances, order) : null;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public String getIdentifier(int index) {
+        return this.identifiers[this.identifierIds[index]];
+    }
+
+    /**
+     * Gets the handle to the schematic of the given placeable,
+     * which is resolved once when the store is built.
+     *
+     * @param index the index of the placeable
+     * @return the handle to the schematic, or null if there is no schematic for the placeable
+     */
+    public SchematicHandle getSchematic(int index) {
+        return this.schematics[this.identifierIds[index]];
+    }
+
+    /**
+     * Gets the id of the identifier of the given placeable,
+     * which is unique within this store.
+     *
+     * @param index the index of the placeable
+     * @return the id of the identifier
+     */
+    public int getIdentifierId(int index) {
+        return this.identifierIds[index];
+    }
+
+    /**
+     * Gets every distinct identifier in this store, indexed
+     * by identifier id.
+     *
+     * @return every distinct identifier
+     */
+    public List<String> getIdentifiers() {
+        return List.of(this.identifiers);
+    }
+
+    /**
+     * Gets the index the given placeable had in the save file,
+     * before placeables were ordered by chunk.
+     *
+     * @param index the index of the placeable
+     * @return the index of the placeable in the save file
+     */
+    public int getSaveIndex(int index) {
+        return this.saveIndices[index];
+    }
+
+    public float getMinX(int index) {
+        return this.minX[index];
+    }
+
+    public float getMinY(int index) {
+        return this.minY[index];
+    }
+
+    public float getMinZ(int index) {
+        return this.minZ[index];
+    }
+
+    public float getMaxX(int index) {
+        return this.maxX[index];
+    }
+
+    public float getMaxY(int index) {
+        return this.maxY[index];
+    }
+
+    public float getMaxZ(int index) {
+        return this.maxZ[index];
+    }
+
+    public Vector3f getMinPosition(int index) {
+        return Vector3f.from(this.minX[index], this.minY[index], this.minZ[index]);
+    }
+
+    public Vector3f getMaxPosition(int index) {
+        return Vector3f.from(this.maxX[index], this.maxY[index], this.maxZ[index]);
+    }
+
+    public byte getOrientation(int index) {
+        return this.orientations[index];
+    }
+
+    public int getRotation(int index) {
+        return switch (this.orientations[index]) {
+            case 0 -> 180;
+            case 1 -> 90;
+            case 2 -> 0;
+            case 3 -> 270;
+            case 4 -> 180;
+            default -> 0;
+        };
+    }
+
+    public boolean isVisible(int index) {
+        return (this.appearanceFlags[index] & VISIBLE_FLAG) != 0;
+    }
+
+    public boolean isBurnt(int index) {
+        return (this.appearanceFlags[index] & BURNT_FLAG) != 0;
+    }
+
+    public boolean shouldDisplay(int index) {
+        if (!this.isVisible(index)) {
+            return false;
+        }
+
+        if (this.appearanceChances == null) {
+            return true;
+        }
+
+        int chance = this.appearanceChances[index] & 0xFF;
+        int num = ThreadLocalRandom.current().nextInt(0, 100);
+        return num <= chance;
+    }
+
+    /**
+     * Creates a builder for a store of the given type.
+     *
+     * @param type the type of the placeables
+     * @param sized if the placeables have a max position separate to their min position
+     * @param chanced if the placeables have a chance to appear
+     * @return a new builder
+     */
+    public static Builder builder(PlaceableType type, boolean sized, boolean chanced) {
+        return new Builder(type, sized, chanced);
+    }
+
+    private static int[] reorder(int[] values, int[] order) {
+        int[] reordered = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            reordered[i] = values[order[i]];
+        }
+
+        return reordered;
+    }
+
+    private static float[] reorder(float[] values, int[] order) {
+        float[] reordered = new float[order.length];
+        for (int i = 0; i < order.length; i++) {
+            reordered[i] = values[order[i]];
+        }
+
+        return reordered;
+    }
+
+    private static byte[] reorder(byte[] values, int[] order) {
+        byte[] reordered = new byte[order.length];
+        for (int i = 0; i < order.length; i++) {
+            reordered[i] = values[order[i]];
+        }
+
+        return reordered;
+    }
+
+    public static class Builder {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final PlaceableType type;
+        private final boolean sized;
+        private final boolean chanced;
+
+        private final List<String> identifiers = new ArrayList<>();
+        private final Map<String, Integer> identifierIdsByName = new HashMap<>();
+
+        private int size;
+        private int[] identifierIds = new int[INITIAL_CAPACITY];
+        private float[] minX = new float[INITIAL_CAPACITY];
+        private float[] minY = new float[INITIAL_CAPACITY];
+        private float[] minZ = new float[INITIAL_CAPACITY];
+        private float[] maxX;
+        private float[] maxY;
+        private float[] maxZ;
+        private byte[] orientations = new byte[INITIAL_CAPACITY];
+        private byte[] appearanceFlags = new byte[INITIAL_CAPACITY];
+        private byte[] appearanceChances;
+
+        private Builder(PlaceableType type, boolean sized, boolean chanced) {
+            this.type = type;
+            this.sized = sized;
+            this.chanced = chanced;
+
+            if (sized) {
+                this.maxX = new float[INITIAL_CAPACITY];
+                this.maxY = new float[INITIAL_CAPACITY];
+                this.maxZ = new float[INITIAL_CAPACITY];
+            }
+
+            if (chanced) {
+                this.appearanceChances = new byte[INITIAL_CAPACITY];
+            }
+        }
+
+        // For placeables whose min and max positions are the same
+        public Builder add(String identifier, float x, float y, float z, byte orientation, int appearanceFlag) {
+            return this.add(identifier, x, y, z, x, y, z, orientation, appearanceFlag, 100);
+        }
+
+        public Builder add(String identifier, float minX, float minY, float minZ, float maxX, float maxY, float maxZ, byte orientation, int appearanceFlag, int appearanceChance) {
+            if (this.size == this.minX.length) {
+                this.grow(this.size * 2);
+            }
+
+            int index = this.size++;
+            this.identifierIds[index] = this.identifierIdsByName.computeIfAbsent(identifier, name -> {
+                this.identifiers.add(name);
+                return this.identifiers.size() - 1;
+            });
+
+            this.minX[index] = minX;
+            this.minY[index] = minY;
+            this.minZ[index] = minZ;
+            if (this.sized) {
+                this.maxX[index] = maxX;
+                this.maxY[index] = maxY;
+                this.maxZ[index] = maxZ;
+            }
+
+            this.orientations[index] = orientation;
+            this.appearanceFlags[index] = (byte) appearanceFlag;
+            if (this.chanced) {
+                this.appearanceChances[index] = (byte) appearanceChance;
+            }
+
+            return this;
+        }
+
+        public PlaceableStore build() {
+            // Ordered by the chunk each placeable starts in. The sort is stable, so
+            // placeables starting in the same chunk keep their save file order
+            long[] mortonCodes = new long[this.size];
+            for (int i = 0; i < this.size; i++) {
+                mortonCodes[i] = MathUtil.getMortonCode(GenericMath.floor(this.minX[i]) >> 4, GenericMath.floor(this.minZ[i]) >> 4);
+            }
+
+            int[] order = IntStream.range(0, this.size)
+                    .boxed()
+                    .sorted((first, second) -> Long.compare(mortonCodes[first], mortonCodes[second]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            return new PlaceableStore(this, order);
+        }
+
+        private void grow(int capacity) {
+            this.identifierIds = Arrays.copyOf(this.identifierIds, capacity);
+            this.minX = Arrays.copyOf(this.minX, capacity);
+            this.minY = Arrays.copyOf(this.minY, capacity);
+            this.minZ = Arrays.copyOf(this.minZ, capacity);
+            if (this.sized) {
+                this.maxX = Arrays.copyOf(this.maxX, capacity);
+                this.maxY = Arrays.copyOf(this.maxY, capacity);
+                this.maxZ = Arrays.copyOf(this.maxZ, capacity);
+            }
+
+            this.orientations = Arrays.copyOf(this.orientations, capacity);
+            this.appearanceFlags = Arrays.copyOf(this.appearanceFlags, capacity);
+            if (this.chanced) {
+                this.appearanceChances = Arrays.copyOf(this.appearanceChances, capacity);
+            }
+        }
+    }
+}
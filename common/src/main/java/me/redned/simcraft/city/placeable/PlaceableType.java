@@ -0,0 +1,16 @@
+package me.redned.simcraft.city.placeable;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum PlaceableType {
+    BUILDING("Building", false),
+    PROP("Prop", true),
+    FLORA("Flora", true);
+
+    private final String displayName;
+    // If schematics of this type are rotated around their center
+    private final boolean centerRotated;
+}
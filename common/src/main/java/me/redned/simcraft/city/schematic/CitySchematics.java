@@ -2,9 +2,6 @@ package me.redned.simcraft.city.schematic;
 
 import me.redned.simcraft.schematic.Schematic;
 import me.redned.simcraft.util.FileUtil;
-import org.cloudburstmc.nbt.NBTInputStream;
-import org.cloudburstmc.nbt.NbtMap;
-import org.cloudburstmc.nbt.NbtUtils;
 
 import java.io.IOException;
 import java.net.URI;
@@ -16,57 +13,121 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Stream;
 
+/**
+ * Registry of the schematics used when building cities.
+ * <p>
+ * Only the names of the available schematics are indexed
+ * up front. Each schematic is parsed the first time it is
+ * requested and cached from then on, so callers from any
+ * thread share a single parsed copy.
+ */
 public class CitySchematics {
-    private static final Map<String, Schematic> SCHEMATICS = new HashMap<>();
+    private static final String SCHEMATIC_EXTENSION = ".schem";
+    private static final String RESOURCE_ROOT = "/schematics";
+
+    // Only written to while indexing, so it is safe to read from any thread afterwards
+    private static final Map<String, SchematicHandle> SCHEMATICS = new HashMap<>();
 
     static {
-        load();
+        index();
     }
 
-    private static void load() {
+    private static void index() {
         try {
-            URI uri = CitySchematics.class.getResource("/schematics").toURI();
+            URI uri = CitySchematics.class.getResource(RESOURCE_ROOT).toURI();
             FileUtil.forPathWithUri(uri, path -> {
                 try {
-                    loadSchematicsFromPath(path);
+                    indexSchematicsFromPath(path, entry -> {
+                        // The path may belong to a jar file system that is closed once
+                        // indexing is done, so resolve it as a classpath resource instead
+                        StringBuilder resourcePath = new StringBuilder(RESOURCE_ROOT);
+                        for (Path element : path.relativize(entry)) {
+                            resourcePath.append('/').append(element);
+                        }
+
+                        String resource = resourcePath.toString();
+                        return new SchematicHandle.Source(resource, () -> CitySchematics.class.getResourceAsStream(resource));
+                    });
                 } catch (IOException ex) {
-                    throw new RuntimeException("Failed to load schematics!", ex);
+                    throw new RuntimeException("Failed to index schematics!", ex);
                 }
             });
 
             Path extPath = Paths.get("schematics");
             if (Files.exists(extPath)) {
-                loadSchematicsFromPath(extPath);
+                indexSchematicsFromPath(extPath, entry -> new SchematicHandle.Source(entry.toString(), () -> Files.newInputStream(entry)));
             }
         } catch (IOException ex) {
-            throw new RuntimeException("Failed to load schematics!", ex);
+            throw new RuntimeException("Failed to index schematics!", ex);
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }
     }
 
     public static Schematic getSchematic(String name) {
+        SchematicHandle handle = SCHEMATICS.get(name);
+        if (handle == null) {
+            return null;
+        }
+
+        return handle.get();
+    }
+
+    /**
+     * Gets a handle to the schematic with the given name,
+     * without needing to parse the schematic.
+     *
+     * @param name the name of the schematic
+     * @return the handle to the schematic, or null if no schematic has the given name
+     */
+    public static SchematicHandle getHandle(String name) {
         return SCHEMATICS.get(name);
     }
 
-    private static void loadSchematicsFromPath(Path path) throws IOException {
+    /**
+     * Gets if a schematic with the given name exists
+     * without needing to parse the schematic.
+     *
+     * @param name the name of the schematic
+     * @return if a schematic with the given name exists
+     */
+    public static boolean hasSchematic(String name) {
+        return SCHEMATICS.containsKey(name);
+    }
+
+    /**
+     * Gets the approximate amount of heap memory, in bytes,
+     * used by every schematic that has been loaded so far.
+     *
+     * @return the approximate memory footprint of the loaded schematics
+     */
+    public static long getLoadedMemoryFootprint() {
+        long footprint = 0;
+        for (SchematicHandle schematic : SCHEMATICS.values()) {
+            Schematic loaded = schematic.getIfLoaded();
+            if (loaded != null) {
+                footprint += loaded.getMemoryFootprint();
+            }
+        }
+
+        return footprint;
+    }
+
+    private static void indexSchematicsFromPath(Path path, SourceResolver resolver) throws IOException {
         try (Stream<Path> stream = Files.walk(path)) {
             stream.forEach(entry -> {
-                if (Files.isDirectory(entry) || !entry.toString().endsWith("schem")) {
+                if (Files.isDirectory(entry) || !entry.toString().endsWith(SCHEMATIC_EXTENSION)) {
                     return;
                 }
 
-                try (NBTInputStream nbtStream = NbtUtils.createGZIPReader(Files.newInputStream(entry))) {
-                    NbtMap root = (NbtMap) nbtStream.readTag();
-
-                    String name = entry.getParent().relativize(entry).toString().replace(".schem", "");
-                    Schematic schematic = Schematic.parse(root);
-
-                    SCHEMATICS.put(name, schematic);
-                } catch (IOException ex) {
-                    throw new RuntimeException("Failed to parse schematic at location: " + path, ex);
-                }
+                String name = entry.getFileName().toString().replace(SCHEMATIC_EXTENSION, "");
+                SCHEMATICS.put(name, new SchematicHandle(name, resolver.resolve(entry)));
             });
         }
     }
+
+    private interface SourceResolver {
+
+        SchematicHandle.Source resolve(Path entry);
+    }
 }
@@ -0,0 +1,66 @@
+package me.redned.simcraft.city.schematic;
+
+import lombok.Getter;
+import me.redned.simcraft.schematic.Schematic;
+import org.cloudburstmc.nbt.NBTInputStream;
+import org.cloudburstmc.nbt.NbtMap;
+import org.cloudburstmc.nbt.NbtUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A handle to a schematic in {@link CitySchematics}.
+ * <p>
+ * The schematic is parsed the first time it is requested
+ * and cached from then on, so a handle can be resolved up
+ * front and held on to without loading the schematic.
+ */
+public class SchematicHandle {
+    @Getter
+    private final String name;
+    private final Source source;
+
+    private volatile Schematic schematic;
+
+    SchematicHandle(String name, Source source) {
+        this.name = name;
+        this.source = source;
+    }
+
+    public Schematic get() {
+        Schematic schematic = this.schematic;
+        if (schematic != null) {
+            return schematic;
+        }
+
+        synchronized (this) {
+            if (this.schematic == null) {
+                this.schematic = this.parse();
+            }
+
+            return this.schematic;
+        }
+    }
+
+    public Schematic getIfLoaded() {
+        return this.schematic;
+    }
+
+    private Schematic parse() {
+        try (NBTInputStream nbtStream = NbtUtils.createGZIPReader(this.source.supplier().open())) {
+            NbtMap root = (NbtMap) nbtStream.readTag();
+            return Schematic.parse(root);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to parse schematic at location: " + this.source.location(), ex);
+        }
+    }
+
+    interface InputStreamSupplier {
+
+        InputStream open() throws IOException;
+    }
+
+    record Source(String location, InputStreamSupplier supplier) {
+    }
+}
@@ -4,23 +4,65 @@ import lombok.Getter;
 import me.redned.levelparser.anvil.AnvilLevel;
 import me.redned.levelparser.anvil.LevelData;
 import me.redned.simcraft.SimCraft;
+import me.redned.simcraft.SimCraftSettings;
 import me.redned.simcraft.city.City;
+import me.redned.simcraft.city.world.terrain.CityTerrainGenerator;
+import me.redned.simcraft.util.concurrent.ChunkTaskScheduler;
+import me.redned.simcraft.util.concurrent.NamedThreadFactory;
+import me.redned.simcraft.util.heightmap.HeightMapMosaic;
+import me.redned.simcraft.util.heightmap.HeightStorage;
+import me.redned.simcraft.util.heightmap.SmoothingMode;
+import me.redned.simcraft.world.ChunkStorage;
+import me.redned.simcraft.world.WorldChunk;
+import me.redned.simcraft.world.anvil.AnvilRegionWriter;
+import me.redned.simcraft.world.light.ChunkNeighbours;
+import org.cloudburstmc.math.vector.Vector2i;
 import org.cloudburstmc.nbt.NbtMap;
 import org.cloudburstmc.nbt.NbtType;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 @Getter
-public class CityLevel {
+public class CityLevel implements AutoCloseable {
+    private static final int MIN_HEIGHT = 0;
+    private static final int MAX_HEIGHT = 1024;
+    private static final int DATA_VERSION = 3218;
+
     private final List<CityRegion> regions = new ArrayList<>();
+    private final ChunkStorage storage;
     private final AnvilLevel level;
+    private final Path worldPath;
+    private final SimCraftSettings settings;
+    private final ChunkTaskScheduler scheduler;
+
+    private HeightMapMosaic heightMapMosaic;
+    private Vector2i heightMapMosaicOrigin;
+
+    public CityLevel(List<City> cities, Path worldPath, SimCraftSettings settings) {
+        if (settings.isHeightMapMosaic() && settings.getSmoothingMode() != SmoothingMode.BOX_BLUR) {
+            throw new IllegalArgumentException("The region heightmap can only be smoothed with box blurs!");
+        }
+
+        this.worldPath = worldPath;
+        this.settings = settings;
+        this.storage = new ChunkStorage(MIN_HEIGHT, MAX_HEIGHT, settings.getSectionStorage().create());
+        this.scheduler = new ChunkTaskScheduler("CityTerrainGenerator", settings.getTerrainThreads(), settings.isVirtualThreads(), settings.getStallTimeout(), TimeUnit.SECONDS);
 
-    public CityLevel(List<City> cities, boolean debug) {
         for (City city : cities) {
-            this.regions.add(new CityRegion(city, this, debug));
+            this.regions.add(new CityRegion(city, this, settings.isDebug()));
         }
 
         this.level = this.createLevel();
@@ -28,25 +70,256 @@ public class CityLevel {
 
     public void buildRegions(SimCraft.RegionBuildState buildState) {
         buildState.setRegions(this.regions.size());
+
+        List<SimCraft.CityBuildState> cityStates = new ArrayList<>(this.regions.size());
+        for (int i = 0; i < this.regions.size(); i++) {
+            cityStates.add(new SimCraft.CityBuildState(i + 1, this.regions.get(i).getCity().getName()));
+        }
+
+        buildState.getCities().addAll(cityStates);
+
+        if (this.settings.isHeightMapMosaic()) {
+            this.buildHeightMapMosaic();
+        }
+
+        List<Integer> buildOrder = new ArrayList<>(IntStream.range(0, this.regions.size()).boxed().toList());
+        RegionFileStreamer streamer = null;
+        if (this.settings.isStreamRegions()) {
+            // Build cities a region file at a time, so each region
+            // file can be written as early as possible
+            buildOrder.sort(Comparator.<Integer>comparingInt(i -> this.regions.get(i).getMinPosition().getY() >> 9)
+                    .thenComparingInt(i -> this.regions.get(i).getMinPosition().getX() >> 9)
+                    .thenComparingInt(i -> this.regions.get(i).getMinPosition().getY())
+                    .thenComparingInt(i -> this.regions.get(i).getMinPosition().getX()));
+
+            streamer = new RegionFileStreamer(this.storage, this.createRegionWriter(), this.regions);
+        }
+
+        try {
+            this.buildRegionsInOrder(buildOrder, cityStates, streamer);
+        } finally {
+            // Every city has copied its part of the region heightmap or stopped by now
+            this.closeHeightMapMosaic();
+
+            if (streamer != null) {
+                streamer.close();
+                printSkipped(streamer.getWriter());
+            }
+        }
+    }
+
+    private void buildRegionsInOrder(List<Integer> buildOrder, List<SimCraft.CityBuildState> cityStates, RegionFileStreamer streamer) {
+        int threads = Math.min(this.settings.getRegionThreads(), this.regions.size());
+        if (threads <= 1) {
+            for (int i : buildOrder) {
+                this.buildRegion(this.regions.get(i), cityStates.get(i), streamer);
+            }
+
+            return;
+        }
+
+        // Each region occupies its own set of chunks, so they
+        // can be built independently of one another
+        ExecutorService threadPool = Executors.newFixedThreadPool(threads, new NamedThreadFactory("CityRegion Builder"));
+
+        try {
+            CompletionService<CityRegion> completionService = new ExecutorCompletionService<>(threadPool);
+            for (int i : buildOrder) {
+                CityRegion region = this.regions.get(i);
+                SimCraft.CityBuildState cityState = cityStates.get(i);
+
+                completionService.submit(() -> this.buildRegion(region, cityState, streamer), region);
+            }
+
+            // Wait on regions in the order they finish, so the first
+            // failure is reported without waiting on the other regions
+            for (int i = 0; i < this.regions.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException ex) {
+                    throw new RuntimeException("Failed to build city region", ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building city regions", ex);
+        } finally {
+            threadPool.shutdownNow();
+
+            // Regions still building may be reading the region heightmap, so wait
+            // for them to stop before it is closed, keeping the first failure intact
+            awaitTermination(threadPool);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService threadPool) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (threadPool.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void buildHeightMapMosaic() {
+        if (this.regions.isEmpty()) {
+            return;
+        }
+
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (CityRegion region : this.regions) {
+            Vector2i min = region.getMinPosition();
+            Vector2i dimensions = region.getCity().getDimensions();
+
+            minX = Math.min(minX, min.getX());
+            minZ = Math.min(minZ, min.getY());
+            maxX = Math.max(maxX, min.getX() + (dimensions.getX() << 4));
+            maxZ = Math.max(maxZ, min.getY() + (dimensions.getY() << 4));
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        HeightMapMosaic mosaic = new HeightMapMosaic(maxX - minX, maxZ - minZ);
         for (CityRegion region : this.regions) {
-            buildState.setCurrentRegion(this.regions.indexOf(region) + 1);
-            buildState.setCityName(region.getCity().getName());
-            buildState.setProgress(0);
+            Vector2i min = region.getMinPosition();
+            Vector2i dimensions = region.getCity().getDimensions();
+
+            mosaic.place(region.getTerrainGenerator().createRawHeightMap(), min.getX() - minX, min.getY() - minZ, dimensions.getX(), dimensions.getY());
+        }
 
-            region.buildCity(buildState);
+        mosaic.smooth(CityTerrainGenerator.SMOOTHING_PASSES);
+
+        this.heightMapMosaic = mosaic;
+        this.heightMapMosaicOrigin = Vector2i.from(minX, minZ);
+
+        System.out.println("Smoothed region heightmap (" + (maxX - minX) + "x" + (maxZ - minZ) + ") in " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private void closeHeightMapMosaic() {
+        if (this.heightMapMosaic != null) {
+            this.heightMapMosaic.close();
+            this.heightMapMosaic = null;
         }
     }
 
+    /**
+     * Gets the part of the region heightmap covered by the
+     * given city region, if the region heightmap is in use.
+     *
+     * @param region the city region
+     * @return the heightmap of the city region, or null if the region heightmap is not in use
+     */
+    public HeightStorage getHeightMapView(CityRegion region) {
+        if (this.heightMapMosaic == null) {
+            return null;
+        }
+
+        Vector2i min = region.getMinPosition();
+        Vector2i dimensions = region.getCity().getDimensions();
+        return this.heightMapMosaic.getView(
+                min.getX() - this.heightMapMosaicOrigin.getX(),
+                min.getY() - this.heightMapMosaicOrigin.getY(),
+                dimensions.getX() << 4,
+                dimensions.getY() << 4
+        );
+    }
+
+    private void buildRegion(CityRegion region, SimCraft.CityBuildState cityState, RegionFileStreamer streamer) {
+        region.buildCity(cityState);
+
+        if (streamer != null) {
+            try {
+                streamer.onCityBuilt(region);
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to write region files of city " + region.getCity().getName() + "!", ex);
+            }
+        }
+
+        cityState.setComplete(true);
+    }
+
+    /**
+     * Writes every chunk still held in memory to the region
+     * files of the world directory. Chunks are released from
+     * the storage once they have been written.
+     *
+     * @throws IOException if the region files could not be written
+     */
+    public void writeRegions() throws IOException {
+        List<WorldChunk> chunks = new ArrayList<>(this.storage.getChunks());
+        if (chunks.isEmpty()) {
+            return;
+        }
+
+        try (AnvilRegionWriter writer = this.createRegionWriter()) {
+            writer.write(chunks, new ChunkNeighbours() {
+
+                @Override
+                public WorldChunk getChunk(int chunkX, int chunkZ) {
+                    return CityLevel.this.storage.getChunkIfPresent(chunkX, chunkZ);
+                }
+
+                @Override
+                public boolean isFinal(int chunkX, int chunkZ) {
+                    // Every city has been built, so only chunks already written and released can be wrong
+                    return !CityLevel.this.storage.isRegionFileFlushed(chunkX >> 5, chunkZ >> 5);
+                }
+            });
+            printSkipped(writer);
+        }
+
+        for (WorldChunk chunk : chunks) {
+            this.storage.removeChunk(chunk.getX(), chunk.getZ());
+        }
+    }
+
+    /**
+     * Releases every chunk still held in memory, along with
+     * the section storage backing them and the region heightmap,
+     * and stops the threads used to generate terrain.
+     */
+    @Override
+    public void close() {
+        this.closeHeightMapMosaic();
+        this.scheduler.close();
+        this.storage.close();
+    }
+
+    private static void printSkipped(AnvilRegionWriter writer) {
+        if (writer.getSkippedChunks() == 0 && writer.getSkippedSections() == 0) {
+            return;
+        }
+
+        // Skipped sections would have been compressed with the rest of their chunk, so only their uncompressed size is known
+        System.out.println("Skipped " + writer.getSkippedChunks() + " empty chunks, saving " + (writer.getSkippedChunkBytes() / 1024) + "KB on disk, and "
+                + writer.getSkippedSections() + " empty sections, saving about " + (writer.getSkippedSectionBytes() / 1024) + "KB before compression");
+    }
+
+    private AnvilRegionWriter createRegionWriter() {
+        return new AnvilRegionWriter(this.worldPath.resolve("region"), DATA_VERSION, Runtime.getRuntime().availableProcessors());
+    }
+
     private AnvilLevel createLevel() {
         return new AnvilLevel(
-                0,
-                1024,
+                MIN_HEIGHT,
+                MAX_HEIGHT,
                 0,
                 new LevelData(
                         new LevelData.LevelVersion(
                                 false,
                                 "main",
-                                3218,
+                                DATA_VERSION,
                                 "1.19.3"
                         ),
                         "SimCraft Cities",
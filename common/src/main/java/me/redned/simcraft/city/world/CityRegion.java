@@ -2,30 +2,42 @@ package me.redned.simcraft.city.world;
 
 import lombok.Getter;
 import me.redned.levelparser.BlockState;
-import me.redned.levelparser.Chunk;
 import me.redned.simcraft.SimCraft;
 import me.redned.simcraft.city.City;
 import me.redned.simcraft.city.lot.LotData;
-import me.redned.simcraft.city.placeable.FloraData;
-import me.redned.simcraft.city.placeable.PlaceableData;
-import me.redned.simcraft.city.placeable.PropData;
-import me.redned.simcraft.city.schematic.CitySchematics;
+import me.redned.simcraft.city.placeable.PlaceableStore;
+import me.redned.simcraft.city.schematic.SchematicHandle;
 import me.redned.simcraft.city.world.lot.CityLotBuilder;
 import me.redned.simcraft.city.world.network.CityNetworkBuilder;
 import me.redned.simcraft.city.world.terrain.CityTerrainGenerator;
+import me.redned.simcraft.schematic.PlacementMetadata;
 import me.redned.simcraft.schematic.Schematic;
+import me.redned.simcraft.schematic.SchematicFootprint;
 import me.redned.simcraft.util.collection.TwoDimensionalPositionMap;
+import me.redned.simcraft.util.concurrent.ChunkTaskScheduler;
+import me.redned.simcraft.world.ChunkStorage;
+import me.redned.simcraft.world.WorldChunk;
 import org.cloudburstmc.math.vector.Vector2i;
 import org.cloudburstmc.math.vector.Vector3d;
 import org.cloudburstmc.math.vector.Vector3i;
 import org.cloudburstmc.nbt.NbtMap;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 @Getter
 public class CityRegion {
     private static final int HEIGHT_DIVISOR = 2;
     private static final int REGION_TILE_SIZE = 64;
+    private static final int MAX_PASTE_DESCENT = 10;
+    private static final int NO_PASTE_POSITION = Integer.MIN_VALUE;
 
     private final City city;
     private final CityLevel level;
@@ -66,7 +78,7 @@ public class CityRegion {
         this.minPosition = Vector2i.from((this.getTilePosition().getX() * REGION_TILE_SIZE) << 4, (this.getTilePosition().getY() * REGION_TILE_SIZE) << 4);
     }
 
-    public void buildCity(SimCraft.RegionBuildState buildState) {
+    public void buildCity(SimCraft.CityBuildState buildState) {
         // Build terrain first
         this.terrainGenerator.buildTerrain(buildState);
 
@@ -82,72 +94,256 @@ public class CityRegion {
         this.buildPlaceables(buildState, SimCraft.BuildState.BUILDINGS, this.city.getBuildings(), true);
     }
 
-    private void buildPlaceables(SimCraft.RegionBuildState buildState, SimCraft.BuildState state, List<? extends PlaceableData> placeables, boolean pasteAir) {
+    private void buildPlaceables(SimCraft.CityBuildState buildState, SimCraft.BuildState state, PlaceableStore placeables, boolean pasteAir) {
         buildState.setBuildState(state);
         buildState.setProgress(0);
 
-        double maxProgress = placeables.size();
+        // Work out the chunks each placeable touches up front, so placeables
+        // that share no chunks can be pasted at the same time. Placeables that
+        // do share chunks are still pasted in order, giving the same result as
+        // pasting every placeable one after another.
+        List<PlaceablePaste> prepared = new ArrayList<>();
         for (int i = 0; i < placeables.size(); i++) {
-            PlaceableData placeable = placeables.get(i);
-            if (!placeable.shouldDisplay()) {
-                continue;
+            PlaceablePaste paste = this.preparePaste(placeables, i);
+            if (paste != null) {
+                prepared.add(paste);
             }
+        }
+
+        List<PlaceablePaste> pastes = orderPastes(prepared);
+        List<ChunkTaskScheduler.ChunkArea> areas = pastes.stream().map(PlaceablePaste::area).toList();
+
+        double maxProgress = pastes.size();
+        AtomicInteger pasted = new AtomicInteger();
+        this.level.getScheduler().runOrdered(state.name().toLowerCase(Locale.ROOT) + " placement for " + this.city.getName(), areas, index -> {
+            this.pastePlaceable(pastes.get(index), pasteAir);
 
-            Vector3i minPos = placeable.getMinPosition().div(1, HEIGHT_DIVISOR, 1).add(0, 1, 0).round().toInt();
-            Vector3i maxPos = placeable.getMaxPosition().div(1, HEIGHT_DIVISOR, 1).add(0, 1, 0).round().toInt();
+            buildState.setProgress(pasted.incrementAndGet() / maxProgress);
+        });
+    }
+
+    /**
+     * Orders pastes so that pastes sharing a chunk are in save file
+     * order, as the last paste in a chunk ends up on top. Otherwise,
+     * pastes keep the chunk order of the store as far as possible.
+     *
+     * @param pastes the pastes, in the order of the store
+     * @return the pastes in the order to paste them
+     */
+    private static List<PlaceablePaste> orderPastes(List<PlaceablePaste> pastes) {
+        int[] saveOrder = IntStream.range(0, pastes.size())
+                .boxed()
+                .sorted(Comparator.comparingInt(i -> pastes.get(i).placeables().getSaveIndex(pastes.get(i).index())))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        // Each paste follows the paste before it in save file order in every chunk it touches
+        List<List<Integer>> successors = new ArrayList<>(pastes.size());
+        int[] predecessorCounts = new int[pastes.size()];
+        for (int i = 0; i < pastes.size(); i++) {
+            successors.add(new ArrayList<>(2));
+        }
+
+        Map<Long, Integer> lastPastes = new HashMap<>();
+        for (int index : saveOrder) {
+            ChunkTaskScheduler.ChunkArea area = pastes.get(index).area();
+            for (int chunkX = area.minChunkX(); chunkX <= area.maxChunkX(); chunkX++) {
+                for (int chunkZ = area.minChunkZ(); chunkZ <= area.maxChunkZ(); chunkZ++) {
+                    Integer previous = lastPastes.put(((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL), index);
+                    if (previous == null) {
+                        continue;
+                    }
+
+                    // Only follow each previous paste once, even if they share many chunks
+                    List<Integer> previousSuccessors = successors.get(previous);
+                    if (!previousSuccessors.isEmpty() && previousSuccessors.get(previousSuccessors.size() - 1) == index) {
+                        continue;
+                    }
 
-            Schematic schematic = CitySchematics.getSchematic(placeable.getIdentifier());
-            if (schematic != null) {
-                // Blended terrain is already built
-                if (schematic.getMetadata().getBoolean("SCTerrainBlend", false)) {
-                    continue;
+                    previousSuccessors.add(index);
+                    predecessorCounts[index]++;
                 }
+            }
+        }
+
+        // Always take the earliest paste in store order that no longer waits on another
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < pastes.size(); i++) {
+            if (predecessorCounts[i] == 0) {
+                ready.add(i);
+            }
+        }
 
-                Vector3i schemPos = minPos;
+        List<PlaceablePaste> ordered = new ArrayList<>(pastes.size());
+        while (!ready.isEmpty()) {
+            int index = ready.poll();
+            ordered.add(pastes.get(index));
 
-                // If we need to occupy the chunk, always paste the schematic at the min
-                // position of the current chunk the schematic is being pasted in to. This
-                // flag is primarily used for "greedy" tiles such as agriculture zoning that
-                // places farmland by default if there aren't other buildings (i.e. a barn)
-                boolean occupyChunk = schematic.getMetadata().getBoolean("SCOccupyChunk", false);
-                if (occupyChunk) {
-                    schemPos = Vector3i.from((schemPos.getX() << 4) >> 4, schemPos.getY(), (schemPos.getZ() << 4) >> 4);
+            for (int successor : successors.get(index)) {
+                if (--predecessorCounts[successor] == 0) {
+                    ready.add(successor);
                 }
+            }
+        }
+
+        return ordered;
+    }
+
+    private PlaceablePaste preparePaste(PlaceableStore placeables, int index) {
+        if (!placeables.shouldDisplay(index)) {
+            return null;
+        }
+
+        return this.createPaste(placeables, index);
+    }
 
-                int offsetX = schematic.getMetadata().getInt("SCOffsetX", 0);
-                int offsetY = schematic.getMetadata().getInt("SCOffsetY", 0);
-                int offsetZ = schematic.getMetadata().getInt("SCOffsetZ", 0);
-                this.pasteAtOptimalPosition(schemPos, placeable, schematic, pasteAir, placeable.getRotation(), offsetX, offsetY, offsetZ);
+    private PlaceablePaste createPaste(PlaceableStore placeables, int index) {
+        Vector3i minPos = placeables.getMinPosition(index).div(1, HEIGHT_DIVISOR, 1).add(0, 1, 0).round().toInt();
+        Vector3i maxPos = placeables.getMaxPosition(index).div(1, HEIGHT_DIVISOR, 1).add(0, 1, 0).round().toInt();
+
+        SchematicHandle handle = placeables.getSchematic(index);
+        if (handle == null) {
+            if (!this.debug) {
+                return null;
             }
 
-            if (this.debug) {
-                if (schematic == null) {
-                    for (int x = minPos.getX(); x < maxPos.getX(); x++) {
-                        for (int y = minPos.getY(); y < maxPos.getY(); y++) {
-                            for (int z = minPos.getZ(); z < maxPos.getZ(); z++) {
-                                this.setBlockState(x, y, z, BlockState.of("minecraft:glass"));
-                            }
-                        }
-                    }
+            return new PlaceablePaste(placeables, index, null, minPos, minPos, maxPos, Vector3i.ZERO, this.getChunkArea(minPos.getX(), minPos.getZ(), maxPos.getX() - 1, maxPos.getZ() - 1));
+        }
+
+        Schematic schematic = handle.get();
+        PlacementMetadata placement = schematic.getPlacementMetadata();
+
+        // Blended terrain is already built
+        if (placement.terrainBlend()) {
+            return null;
+        }
+
+        Vector3i schemPos = minPos;
+
+        // If we need to occupy the chunk, always paste the schematic at the min
+        // position of the current chunk the schematic is being pasted in to. This
+        // flag is primarily used for "greedy" tiles such as agriculture zoning that
+        // places farmland by default if there aren't other buildings (i.e. a barn)
+        if (placement.occupyChunk()) {
+            schemPos = Vector3i.from((schemPos.getX() << 4) >> 4, schemPos.getY(), (schemPos.getZ() << 4) >> 4);
+        }
+
+        Vector3i offset = placement.offset();
+
+        // The paste touches the schematic footprint, and finding the paste
+        // height reads the column at the center of the schematic
+        SchematicFootprint footprint = schematic.getFootprint(schemPos.add(offset), placeables.getRotation(index), placeables.getType().isCenterRotated());
+        Vector3d centerPos = schematic.getCenterPosition();
+        int centerX = schemPos.getX() + (int) centerPos.getX() + offset.getX();
+        int centerZ = schemPos.getZ() + (int) centerPos.getZ() + offset.getZ();
+
+        int minX = Math.min(footprint.minX(), centerX);
+        int minZ = Math.min(footprint.minZ(), centerZ);
+        int maxX = Math.max(footprint.maxX(), centerX);
+        int maxZ = Math.max(footprint.maxZ(), centerZ);
+        if (this.debug) {
+            minX = Math.min(minX, minPos.getX());
+            minZ = Math.min(minZ, minPos.getZ());
+            maxX = Math.max(maxX, minPos.getX());
+            maxZ = Math.max(maxZ, minPos.getZ());
+        }
+
+        return new PlaceablePaste(placeables, index, schematic, schemPos, minPos, maxPos, offset, this.getChunkArea(minX, minZ, maxX, maxZ));
+    }
+
+    /**
+     * Gets every chunk this city can write to while it is built,
+     * which includes chunks past its edges where networks and
+     * placeables overhang it. This loads the schematic of every
+     * placeable in the city.
+     *
+     * @return the chunks this city can write to
+     */
+    public ChunkTaskScheduler.ChunkArea getChunkReach() {
+        // Terrain covers the whole city, and lots never reach past their tiles
+        Vector2i dimensions = this.city.getDimensions();
+        int[] reach = { 0, 0, (dimensions.getX() << 4) - 1, (dimensions.getY() << 4) - 1 };
+        for (LotData lot : this.city.getLots()) {
+            Vector2i minTile = lot.getMinTilePosition();
+            includeReach(reach, minTile.getX() << 4, minTile.getY() << 4, ((minTile.getX() + lot.getDimensions().getX()) << 4) - 1, ((minTile.getY() + lot.getDimensions().getY()) << 4) - 1);
+        }
+
+        for (SchematicFootprint footprint : this.networkBuilder.getFootprints()) {
+            includeReach(reach, footprint.minX(), footprint.minZ(), footprint.maxX(), footprint.maxZ());
+        }
+
+        PlaceableStore buildings = this.city.getBuildings();
+        for (int i = 0; i < buildings.size(); i++) {
+            // Blended buildings are pasted by the terrain generator, at the start of their chunk
+            SchematicHandle handle = buildings.getSchematic(i);
+            if (handle != null && handle.get().getPlacementMetadata().terrainBlend()) {
+                Vector3i position = Vector3i.from(((int) buildings.getMinX(i) >> 4) << 4, 0, ((int) buildings.getMinZ(i) >> 4) << 4);
+                SchematicFootprint footprint = handle.get().getFootprint(position, buildings.getRotation(i), false);
+                includeReach(reach, footprint.minX(), footprint.minZ(), footprint.maxX(), footprint.maxZ());
+            }
+        }
+
+        for (PlaceableStore placeables : List.of(this.city.getFlora(), this.city.getProps(), buildings)) {
+            for (int i = 0; i < placeables.size(); i++) {
+                // Whether a placeable appears is only decided when it is built, so every placeable is included
+                PlaceablePaste paste = this.createPaste(placeables, i);
+                if (paste != null) {
+                    ChunkTaskScheduler.ChunkArea area = paste.area();
+                    includeReach(reach, (area.minChunkX() << 4) - this.minPosition.getX(), (area.minChunkZ() << 4) - this.minPosition.getY(),
+                            (area.maxChunkX() << 4) - this.minPosition.getX(), (area.maxChunkZ() << 4) - this.minPosition.getY());
                 }
+            }
+        }
+
+        return this.getChunkArea(reach[0], reach[1], reach[2], reach[3]);
+    }
+
+    private static void includeReach(int[] reach, int minX, int minZ, int maxX, int maxZ) {
+        reach[0] = Math.min(reach[0], minX);
+        reach[1] = Math.min(reach[1], minZ);
+        reach[2] = Math.max(reach[2], maxX);
+        reach[3] = Math.max(reach[3], maxZ);
+    }
+
+    private void pastePlaceable(PlaceablePaste paste, boolean pasteAir) {
+        PlaceableStore placeables = paste.placeables();
+        int index = paste.index();
+        Vector3i minPos = paste.minPos();
+        Vector3i maxPos = paste.maxPos();
 
-                Chunk chunk = this.getChunk(minPos.getX() >> 4, minPos.getZ() >> 4);
-                chunk.getBlockEntities().add(NbtMap.builder()
-                        .putString("id", "minecraft:sign")
-                        .putInt("x", minPos.getX() + this.getMinPosition().getX())
-                        .putInt("y", maxPos.getY())
-                        .putInt("z", minPos.getZ() + this.getMinPosition().getY())
-                        .putString("Text1", "{\"text\":\"" + placeable.getIdentifier() + "\"}")
-                        .putString("Text2", "{\"text\":\"" + placeable.getOrientation() + " (" + placeable.getRotation() + ")" + "\"}")
-                        .build());
-
-                this.setBlockState(minPos.getX(), maxPos.getY(), minPos.getZ(), BlockState.of("minecraft:oak_sign"));
+        if (paste.schematic() != null) {
+            this.pasteAtOptimalPosition(paste.position(), paste.schematic(), pasteAir, placeables.getRotation(index), placeables.getType().isCenterRotated(), paste.offset());
+        }
+
+        if (this.debug) {
+            if (paste.schematic() == null) {
+                this.fill(minPos.getX(), minPos.getY(), minPos.getZ(), maxPos.getX() - 1, maxPos.getY() - 1, maxPos.getZ() - 1, BlockState.of("minecraft:glass"));
             }
 
-            buildState.setProgress(i / maxProgress);
+            WorldChunk chunk = this.getChunk(minPos.getX() >> 4, minPos.getZ() >> 4);
+            chunk.getBlockEntities().add(NbtMap.builder()
+                    .putString("id", "minecraft:sign")
+                    .putInt("x", minPos.getX() + this.getMinPosition().getX())
+                    .putInt("y", maxPos.getY())
+                    .putInt("z", minPos.getZ() + this.getMinPosition().getY())
+                    .putString("Text1", "{\"text\":\"" + placeables.getIdentifier(index) + "\"}")
+                    .putString("Text2", "{\"text\":\"" + placeables.getOrientation(index) + " (" + placeables.getRotation(index) + ")" + "\"}")
+                    .build());
+
+            this.setBlockState(minPos.getX(), maxPos.getY(), minPos.getZ(), BlockState.of("minecraft:oak_sign"));
         }
     }
 
+    private ChunkTaskScheduler.ChunkArea getChunkArea(int minX, int minZ, int maxX, int maxZ) {
+        Vector2i minPosition = this.getMinPosition();
+        return new ChunkTaskScheduler.ChunkArea(
+                (minPosition.getX() + minX) >> 4,
+                (minPosition.getY() + minZ) >> 4,
+                (minPosition.getX() + maxX) >> 4,
+                (minPosition.getY() + maxZ) >> 4
+        );
+    }
+
     public LotData getLot(int tileX, int tileZ) {
         return this.lots.get(tileX, tileZ);
     }
@@ -160,52 +356,96 @@ public class CityRegion {
         return this.city.getTilePosition();
     }
 
-    public Chunk getChunk(int x, int z) {
+    public WorldChunk getChunk(int x, int z) {
         Vector2i position = this.getTilePosition();
-        return this.level.getLevel().getChunk((position.getX() * REGION_TILE_SIZE) + x, (position.getY() * REGION_TILE_SIZE) + z);
+        return this.getStorage().getChunk((position.getX() * REGION_TILE_SIZE) + x, (position.getY() * REGION_TILE_SIZE) + z);
     }
 
-    public BlockState getBlockState(int x, int y, int z) {
-        if (y < this.level.getLevel().getMinHeight() || y > this.level.getLevel().getMaxHeight()) {
-            return BlockState.AIR;
-        }
+    public ChunkStorage getStorage() {
+        return this.level.getStorage();
+    }
 
+    public BlockState getBlockState(int x, int y, int z) {
         Vector2i minPosition = this.getMinPosition();
-        return this.level.getLevel().getBlockState(minPosition.getX() + x, y, minPosition.getY() + z);
+        return this.getStorage().getBlockState(minPosition.getX() + x, y, minPosition.getY() + z);
     }
 
     public void setBlockState(int x, int y, int z, BlockState state) {
-        if (y < this.level.getLevel().getMinHeight() || y > this.level.getLevel().getMaxHeight()) {
-            return;
-        }
+        Vector2i minPosition = this.getMinPosition();
+        this.getStorage().setBlockState(minPosition.getX() + x, y, minPosition.getY() + z, state);
+    }
 
+    /**
+     * Fills the given box with the given state, writing each
+     * chunk section the box touches in a single operation.
+     * All positions are inclusive.
+     *
+     * @param minX the minimum X position
+     * @param minY the minimum Y position
+     * @param minZ the minimum Z position
+     * @param maxX the maximum X position
+     * @param maxY the maximum Y position
+     * @param maxZ the maximum Z position
+     * @param state the state to fill with
+     */
+    public void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, BlockState state) {
         Vector2i minPosition = this.getMinPosition();
-        this.level.getLevel().setBlockState(minPosition.getX() + x, y, minPosition.getY() + z, state);
+        this.getStorage().fill(minPosition.getX() + minX, minY, minPosition.getY() + minZ, minPosition.getX() + maxX, maxY, minPosition.getY() + maxZ, state);
     }
 
-    private void pasteAtOptimalPosition(Vector3i pos, PlaceableData placeable, Schematic schematic, boolean pasteAir, int rotation, int offsetX, int offsetY, int offsetZ) {
-        this.pasteAtOptimalPosition(pos, placeable, schematic, pasteAir, rotation, offsetX, offsetY, offsetZ, 0);
+    public int getTopBlockY(int x, int z) {
+        Vector2i minPosition = this.getMinPosition();
+        return this.getStorage().getTopBlockY(minPosition.getX() + x, minPosition.getY() + z);
     }
 
-    private void pasteAtOptimalPosition(Vector3i pos, PlaceableData placeable, Schematic schematic, boolean pasteAir, int rotation, int offsetX, int offsetY, int offsetZ, int iterations) {
-        if (iterations > 10) {
+    private void pasteAtOptimalPosition(Vector3i pos, Schematic schematic, boolean pasteAir, int rotation, boolean rotateCenter, Vector3i offset) {
+        Vector3d centerPos = schematic.getCenterPosition();
+        int centerX = pos.getX() + (int) centerPos.getX() + offset.getX();
+        int centerZ = pos.getZ() + (int) centerPos.getZ() + offset.getZ();
+
+        int pasteY = this.findPasteY(pos, centerX, centerZ);
+        if (pasteY == NO_PASTE_POSITION) {
             System.err.println("Attempted to paste schematic below terrain!");
             return;
         }
 
-        Vector3d centerPos = schematic.getCenterPosition();
-        int height = this.terrainGenerator.getHeight(pos.getX() + (int) centerPos.getX() + offsetX, pos.getZ() + (int) centerPos.getZ() + offsetZ);
-        boolean hasNetwork = this.networkBuilder.hasNetwork(pos.getX() >> 4, pos.getZ() >> 4);
-        if (!hasNetwork && (height + 1 < pos.getY() || height + 1 > pos.getY())) {
-            pos = Vector3i.from(pos.getX(), height + 1, pos.getZ());
+        Vector2i min = this.getMinPosition();
+        schematic.paste(this.getStorage(), Vector3i.from(pos.getX(), pasteY, pos.getZ()).add(offset).add(min.getX(), 0, min.getY()), rotation, null, pasteAir, rotateCenter);
+    }
+
+    private int findPasteY(Vector3i pos, int centerX, int centerZ) {
+        int topY = this.getTopBlockY(centerX, centerZ);
+
+        // Placeables away from networks always sit on top of the terrain
+        if (!this.networkBuilder.hasNetwork(pos.getX() >> 4, pos.getZ() >> 4)) {
+            int height = this.terrainGenerator.getHeight(centerX, centerZ);
+            return this.isSolid(centerX, height, centerZ, topY) ? height + 1 : NO_PASTE_POSITION;
         }
 
-        if (BlockState.AIR.equals(this.getBlockState(pos.getX() + (int) centerPos.getX() + offsetX, pos.getY() - 1, pos.getZ() + (int) centerPos.getZ() + offsetZ))) {
-            this.pasteAtOptimalPosition(pos.sub(0, 1, 0), placeable, schematic, pasteAir, rotation, offsetX, offsetY, offsetZ, iterations + 1);
-            return;
+        // Otherwise, move down until there is a block under the placeable
+        int y = pos.getY();
+        if (topY < y) {
+            // Nothing is above the top block, so it is the first block we would find
+            return y - 1 - topY <= MAX_PASTE_DESCENT ? topY + 1 : NO_PASTE_POSITION;
         }
 
-        Vector2i min = this.getMinPosition();
-        schematic.paste(this.level.getLevel(), pos.add(offsetX, offsetY, offsetZ).add(min.getX(), 0, min.getY()), rotation, null, pasteAir, placeable instanceof PropData || placeable instanceof FloraData);
+        for (int i = 0; i <= MAX_PASTE_DESCENT; i++) {
+            if (this.isSolid(centerX, y - 1 - i, centerZ, topY)) {
+                return y - i;
+            }
+        }
+
+        return NO_PASTE_POSITION;
+    }
+
+    private boolean isSolid(int x, int y, int z, int topY) {
+        if (y >= topY) {
+            return y == topY;
+        }
+
+        return !BlockState.AIR.equals(this.getBlockState(x, y, z));
+    }
+
+    private record PlaceablePaste(PlaceableStore placeables, int index, Schematic schematic, Vector3i position, Vector3i minPos, Vector3i maxPos, Vector3i offset, ChunkTaskScheduler.ChunkArea area) {
     }
 }
@@ -0,0 +1,152 @@
+package me.redned.simcraft.city.world;
+
+import lombok.Getter;
+import me.redned.simcraft.util.concurrent.ChunkTaskScheduler;
+import me.redned.simcraft.world.ChunkStorage;
+import me.redned.simcraft.world.WorldChunk;
+import me.redned.simcraft.world.anvil.AnvilRegionWriter;
+import me.redned.simcraft.world.light.ChunkNeighbours;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes each Anvil region file as soon as every city that
+ * can touch it has been built, then releases its chunks, so
+ * only the region files around the cities being built are
+ * held in memory at once.
+ * <p>
+ * Placeables and networks near the edge of a city can reach
+ * past it, so the chunks each city can touch are worked out
+ * up front from the schematics it pastes.
+ * <p>
+ * Chunks are lit together with their neighbors, but a neighbor
+ * in a region file that was already written has been released,
+ * and one a city has yet to build can still change. Chunks next
+ * to either are written unlit, and lit by the server once loaded.
+ */
+public class RegionFileStreamer implements AutoCloseable {
+    private static final int REGION_FILE_SIZE = 32;
+
+    private final ChunkStorage storage;
+    @Getter
+    private final AnvilRegionWriter writer;
+
+    // Only written to up front, so they are safe to read from any thread afterwards
+    private final Map<Long, AtomicInteger> pendingCities = new HashMap<>();
+    private final Map<CityRegion, List<Long>> cityRegionFiles = new HashMap<>();
+    private final Map<CityRegion, ChunkTaskScheduler.ChunkArea> cityReaches = new HashMap<>();
+
+    private final Set<CityRegion> builtCities = ConcurrentHashMap.newKeySet();
+
+    public RegionFileStreamer(ChunkStorage storage, AnvilRegionWriter writer, List<CityRegion> regions) {
+        this.storage = storage;
+        this.writer = writer;
+
+        for (CityRegion region : regions) {
+            ChunkTaskScheduler.ChunkArea reach = region.getChunkReach();
+            this.cityReaches.put(region, reach);
+
+            List<Long> regionFiles = getRegionFiles(reach);
+            this.cityRegionFiles.put(region, regionFiles);
+
+            for (long regionFile : regionFiles) {
+                this.pendingCities.computeIfAbsent(regionFile, key -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Marks the given city as built, writing every region
+     * file that no other city still has to build.
+     *
+     * @param region the city region that was built
+     * @throws IOException if a region file could not be written
+     */
+    public void onCityBuilt(CityRegion region) throws IOException {
+        this.builtCities.add(region);
+        for (long regionFile : this.cityRegionFiles.get(region)) {
+            if (this.pendingCities.get(regionFile).decrementAndGet() == 0) {
+                this.flush((int) regionFile, (int) (regionFile >> 32));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        this.writer.close();
+    }
+
+    private void flush(int regionX, int regionZ) throws IOException {
+        // Marked first, so nothing can create a chunk while the region file is written
+        this.storage.markRegionFileFlushed(regionX, regionZ);
+
+        List<WorldChunk> chunks = new ArrayList<>();
+        for (int chunkX = regionX * REGION_FILE_SIZE; chunkX < (regionX + 1) * REGION_FILE_SIZE; chunkX++) {
+            for (int chunkZ = regionZ * REGION_FILE_SIZE; chunkZ < (regionZ + 1) * REGION_FILE_SIZE; chunkZ++) {
+                WorldChunk chunk = this.storage.getChunkIfPresent(chunkX, chunkZ);
+                if (chunk != null) {
+                    chunks.add(chunk);
+                }
+            }
+        }
+
+        if (chunks.isEmpty()) {
+            return;
+        }
+
+        this.writer.write(chunks, new ChunkNeighbours() {
+            @Override
+            public WorldChunk getChunk(int chunkX, int chunkZ) {
+                return RegionFileStreamer.this.storage.getChunkIfPresent(chunkX, chunkZ);
+            }
+
+            @Override
+            public boolean isFinal(int chunkX, int chunkZ) {
+                // Chunks in the region file being written are only released once it has been written
+                if (chunkX >> 5 == regionX && chunkZ >> 5 == regionZ) {
+                    return true;
+                }
+
+                return RegionFileStreamer.this.isFinal(chunkX, chunkZ);
+            }
+        });
+        for (WorldChunk chunk : chunks) {
+            this.storage.removeChunk(chunk.getX(), chunk.getZ());
+        }
+    }
+
+    private boolean isFinal(int chunkX, int chunkZ) {
+        if (this.storage.isRegionFileFlushed(chunkX >> 5, chunkZ >> 5)) {
+            return false;
+        }
+
+        for (Map.Entry<CityRegion, ChunkTaskScheduler.ChunkArea> entry : this.cityReaches.entrySet()) {
+            ChunkTaskScheduler.ChunkArea reach = entry.getValue();
+            if (chunkX >= reach.minChunkX() && chunkX <= reach.maxChunkX()
+                    && chunkZ >= reach.minChunkZ() && chunkZ <= reach.maxChunkZ()
+                    && !this.builtCities.contains(entry.getKey())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static List<Long> getRegionFiles(ChunkTaskScheduler.ChunkArea reach) {
+        List<Long> regionFiles = new ArrayList<>();
+        for (int regionX = reach.minChunkX() >> 5; regionX <= reach.maxChunkX() >> 5; regionX++) {
+            for (int regionZ = reach.minChunkZ() >> 5; regionZ <= reach.maxChunkZ() >> 5; regionZ++) {
+                regionFiles.add(ChunkStorage.getChunkKey(regionX, regionZ));
+            }
+        }
+
+        return regionFiles;
+    }
+}
@@ -23,7 +23,7 @@ public class CityLotBuilder {
 
     private final CityRegion region;
 
-    public void buildLots(SimCraft.RegionBuildState buildState) {
+    public void buildLots(SimCraft.CityBuildState buildState) {
         buildState.setBuildState(SimCraft.BuildState.LOTS);
         buildState.setProgress(0);
 
@@ -57,9 +57,7 @@ public class CityLotBuilder {
                         int xPos = (chunkX << 4) + x;
                         int zPos = (chunkZ << 4) + z;
                         int y = this.region.getTerrainGenerator().getHeight(xPos, zPos);
-                        for (int depth = 1; depth < DEPTH; depth++) {
-                            this.region.setBlockState(xPos, y - depth, zPos, retainingWall.getState());
-                        }
+                        this.region.fill(xPos, y - (DEPTH - 1), zPos, xPos, y - 1, zPos, retainingWall.getState());
                     }
                 }
             }
@@ -2,7 +2,6 @@ package me.redned.simcraft.city.world.network;
 
 import lombok.Getter;
 import me.redned.levelparser.BlockState;
-import me.redned.levelparser.Chunk;
 import me.redned.levelparser.Level;
 import me.redned.simcraft.SimCraft;
 import me.redned.simcraft.city.network.NetworkData;
@@ -14,7 +13,9 @@ import me.redned.simcraft.city.world.network.piece.RoadNetworkPiece;
 import me.redned.simcraft.city.world.network.piece.StreetNetworkPiece;
 import me.redned.simcraft.city.world.terrain.CityTerrainGenerator;
 import me.redned.simcraft.schematic.Schematic;
+import me.redned.simcraft.schematic.SchematicFootprint;
 import me.redned.simcraft.util.collection.TwoDimensionalPositionMap;
+import me.redned.simcraft.world.WorldChunk;
 import me.redned.simreader.sc4.type.network.NetworkType;
 import org.cloudburstmc.math.vector.Vector2i;
 import org.cloudburstmc.math.vector.Vector3i;
@@ -58,7 +59,7 @@ public class CityNetworkBuilder {
         }
     }
 
-    public void buildNetworks(SimCraft.RegionBuildState buildState) {
+    public void buildNetworks(SimCraft.CityBuildState buildState) {
         buildState.setBuildState(SimCraft.BuildState.NETWORKS);
         buildState.setProgress(0);
 
@@ -76,7 +77,7 @@ public class CityNetworkBuilder {
 
             if (this.region.isDebug()) {
                 Vector3i maxPos = network.getMaxPosition().div(1, heightDivisor, 1).add(0, 1, 0).toInt();
-                Chunk chunk = this.region.getChunk(minPos.getX() >> 4, minPos.getZ() >> 4);
+                WorldChunk chunk = this.region.getChunk(minPos.getX() >> 4, minPos.getZ() >> 4);
                 chunk.getBlockEntities().add(NbtMap.builder()
                         .putString("id", "minecraft:sign")
                         .putInt("x", minPos.getX() + this.region.getMinPosition().getX())
@@ -94,6 +95,31 @@ public class CityNetworkBuilder {
         }
     }
 
+    /**
+     * Gets the blocks on the X and Z axis each network can write
+     * to, relative to the city.
+     *
+     * @return the blocks each network can write to
+     */
+    public List<SchematicFootprint> getFootprints() {
+        int heightDivisor = this.terrainGenerator.getHeightDivisor();
+
+        List<SchematicFootprint> footprints = new ArrayList<>(this.networks.size());
+        for (NetworkData network : this.networks) {
+            // The same position the network is built at, and where its debug sign goes
+            Vector3i minPos = network.getMinPosition().div(1, heightDivisor, 1).add(0, 1, 0).toInt();
+
+            NetworkPiece piece = NETWORK_PIECES.get(network.getNetworkType());
+            if (piece != null) {
+                footprints.add(piece.getFootprint(network, minPos));
+            } else if (this.region.isDebug()) {
+                footprints.add(new SchematicFootprint(minPos.getX(), minPos.getZ(), minPos.getX(), minPos.getZ()));
+            }
+        }
+
+        return footprints;
+    }
+
     public NetworkData getGroundNetwork(int tileX, int tileZ) {
         return this.groundLevelNetwork.get(tileX, tileZ);
     }
@@ -106,7 +132,7 @@ public class CityNetworkBuilder {
         int heightDivisor = this.terrainGenerator.getHeightDivisor();
         Vector2i minPosition = this.region.getMinPosition();
         schematic.paste(
-                this.region.getLevel().getLevel(),
+                this.region.getStorage(),
                 pastePositionOperator.apply(network.getMinPosition()
                         .add(minPosition.getX(), 0, minPosition.getY())
                         .div(1, heightDivisor, 1)
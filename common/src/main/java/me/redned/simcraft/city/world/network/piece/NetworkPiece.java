@@ -2,10 +2,24 @@ package me.redned.simcraft.city.world.network.piece;
 
 import me.redned.simcraft.city.network.NetworkData;
 import me.redned.simcraft.city.world.network.CityNetworkBuilder;
+import me.redned.simcraft.schematic.SchematicFootprint;
 import org.cloudburstmc.math.vector.Vector3i;
 
 public interface NetworkPiece {
     int DEPTH = 16;
+    int TILE_SIZE = 16;
 
     void buildPiece(CityNetworkBuilder builder, NetworkData network, Vector3i position);
+
+    /**
+     * Gets the blocks on the X and Z axis this piece can write
+     * to when built at the given position.
+     *
+     * @param network the network the piece is built for
+     * @param position the position the piece is built at
+     * @return the blocks this piece can write to
+     */
+    default SchematicFootprint getFootprint(NetworkData network, Vector3i position) {
+        return new SchematicFootprint(position.getX(), position.getZ(), position.getX() + TILE_SIZE - 1, position.getZ() + TILE_SIZE - 1);
+    }
 }
@@ -5,6 +5,7 @@ import me.redned.simcraft.city.network.NetworkData;
 import me.redned.simcraft.city.schematic.CitySchematics;
 import me.redned.simcraft.city.world.network.CityNetworkBuilder;
 import me.redned.simcraft.schematic.Schematic;
+import me.redned.simcraft.schematic.SchematicFootprint;
 import org.cloudburstmc.math.vector.Vector3i;
 
 import java.util.concurrent.atomic.AtomicReference;
@@ -25,13 +26,18 @@ public class RailNetworkPiece implements NetworkPiece {
         });
 
         // Fill terrain below rail
-        for (int depth = -DEPTH; depth < 0; depth++) {
-            int y = pastePosition.get().getY() + depth;
-            for (int x = 0; x < SIZE; x++) {
-                for (int z = 0; z < SIZE; z++) {
-                    builder.getRegion().setBlockState(position.getX() + x, y, position.getZ() + z, GROUND_STATE);
-                }
-            }
-        }
+        int y = pastePosition.get().getY();
+        builder.getRegion().fill(position.getX(), y - DEPTH, position.getZ(), position.getX() + SIZE - 1, y - 1, position.getZ() + SIZE - 1, GROUND_STATE);
+    }
+
+    @Override
+    public SchematicFootprint getFootprint(NetworkData network, Vector3i position) {
+        SchematicFootprint rail = RAIL_SCHEMATIC.getFootprint(position, network.getRotation(), false);
+        return new SchematicFootprint(
+                Math.min(rail.minX(), position.getX()),
+                Math.min(rail.minZ(), position.getZ()),
+                Math.max(rail.maxX(), position.getX() + SIZE - 1),
+                Math.max(rail.maxZ(), position.getZ() + SIZE - 1)
+        );
     }
 }
@@ -29,6 +29,14 @@ public class RoadNetworkPiece implements NetworkPiece {
 
         int y = (network.getMinPosition().getFloorY() / builder.getTerrainGenerator().getHeightDivisor());
 
+        // Build the center pavement (exists for all directions). Nothing else is
+        // placed within the center at these heights, so fill every depth at once
+        region.fill(
+                position.getX() + OUTER_EDGE_SIZE, y - DEPTH, position.getZ() + OUTER_EDGE_SIZE,
+                position.getX() + (SIZE - OUTER_EDGE_SIZE) - 1, y - 1, position.getZ() + (SIZE - OUTER_EDGE_SIZE) - 1,
+                PAVEMENT_STATE
+        );
+
         for (int depth = -DEPTH; depth < 0; depth++) {
             int connections = 0;
 
@@ -44,11 +52,9 @@ public class RoadNetworkPiece implements NetworkPiece {
 
             TwoDimensionalPositionMap<Integer> yStorage = new TwoDimensionalPositionMap<>();
 
-            // Build the center pavement (exists for all directions)
+            // Track the center pavement filled above
             for (int x = position.getX() + OUTER_EDGE_SIZE; x < position.getX() + (SIZE - OUTER_EDGE_SIZE); x++) {
                 for (int z = position.getZ() + OUTER_EDGE_SIZE; z < position.getZ() + (SIZE - OUTER_EDGE_SIZE); z++) {
-                    region.setBlockState(x, y + depth, z, PAVEMENT_STATE);
-
                     yStorage.put(x, z, y + depth);
                 }
             }
@@ -5,36 +5,29 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import me.redned.levelparser.BlockState;
 import me.redned.simcraft.SimCraft;
+import me.redned.simcraft.SimCraftSettings;
 import me.redned.simcraft.city.City;
 import me.redned.simcraft.city.lot.LotData;
 import me.redned.simcraft.city.network.NetworkData;
-import me.redned.simcraft.city.placeable.BuildingData;
-import me.redned.simcraft.city.schematic.CitySchematics;
+import me.redned.simcraft.city.placeable.PlaceableStore;
+import me.redned.simcraft.city.schematic.SchematicHandle;
 import me.redned.simcraft.city.world.CityRegion;
 import me.redned.simcraft.city.world.network.piece.NetworkPiece;
 import me.redned.simcraft.schematic.Schematic;
 import me.redned.simcraft.util.collection.ThreeDimensionalPositionList;
 import me.redned.simcraft.util.collection.TwoDimensionalPositionMap;
 import me.redned.simcraft.util.heightmap.HeightMap;
+import me.redned.simcraft.util.heightmap.HeightStorage;
 import org.cloudburstmc.math.GenericMath;
 import org.cloudburstmc.math.vector.Vector3i;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @RequiredArgsConstructor
 public class CityTerrainGenerator {
     private static final int MAX_HEIGHT = 1024;
-    private static final int SMOOTHING_PASSES = 50;
+    public static final int SMOOTHING_PASSES = 50;
 
     private static final int WATER_Y_LEVEL = 250;
     private static final int SAND_WATER_HEIGHT_LEVEL = 5;
@@ -60,50 +53,37 @@ public class CityTerrainGenerator {
 
     private final TwoDimensionalPositionMap<ObjectIntPair<Schematic>> tileSchematics = new TwoDimensionalPositionMap<>();
 
-    public void buildTerrain(SimCraft.RegionBuildState buildState) {
+    public void buildTerrain(SimCraft.CityBuildState buildState) {
         buildState.setBuildState(SimCraft.BuildState.TERRAIN);
         buildState.setProgress(0);
 
-        // TODO: This is very fast but still takes a long time for larger cities.
-        //       Would definitely benefit from Java 21's virtual threads due to the
-        //       very high throughput this has.
-        int threads = Runtime.getRuntime().availableProcessors() * 3 / 8;
-        ExecutorService threadPool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
-            private final AtomicInteger threadCounter = new AtomicInteger();
-
-            @Override
-            public Thread newThread(final Runnable run) {
-                final Thread ret = new Thread(run);
-
-                ret.setName("CityTerrainGenerator #" + this.threadCounter.getAndIncrement());
-                ret.setUncaughtExceptionHandler((thread, throwable) -> throwable.printStackTrace());
-
-                return ret;
-            }
-        });
-
         City city = this.region.getCity();
-        float[][] rawHeightMap = city.getHeightMap().clone();
-
-        // Sync our lot heights
-        this.region.getLots().forEach((x, y, lot) -> rawHeightMap[y][x] = lot.getYPosition());
-
-        // Sync our network heights
-        this.region.getNetworkBuilder().getGroundLevelNetwork().forEach((x, y, network) -> rawHeightMap[y][x] = network.getPosition().getY() - 2);
+        float[][] rawHeightMap = this.createRawHeightMap();
 
         // Go through our buildings and see if there are any that
         // will be placed inside the terrain (i.e. agriculture plots)
-        for (BuildingData building : city.getBuildings()) {
-            Schematic schematic = CitySchematics.getSchematic(building.getIdentifier());
-            if (schematic != null) {
-                if (schematic.getMetadata().getBoolean("SCTerrainBlend", false)) {
+        PlaceableStore buildings = city.getBuildings();
+        for (int i = 0; i < buildings.size(); i++) {
+            SchematicHandle handle = buildings.getSchematic(i);
+            if (handle != null) {
+                Schematic schematic = handle.get();
+                if (schematic.getPlacementMetadata().terrainBlend()) {
                     // Blend the chunk data with the terrain
-                    this.tileSchematics.put((int) building.getMinPosition().getX() >> 4, (int) building.getMinPosition().getZ() >> 4, ObjectIntPair.of(schematic, building.getRotation()));
+                    this.tileSchematics.put((int) buildings.getMinX(i) >> 4, (int) buildings.getMinZ(i) >> 4, ObjectIntPair.of(schematic, buildings.getRotation(i)));
                 }
             }
         }
 
-        HeightMap heightMap = new HeightMap(rawHeightMap, city.getDimensions().getX(), city.getDimensions().getY(), SMOOTHING_PASSES);
+        // Use our part of the region heightmap if it has been smoothed as a whole,
+        // copied out as the region heightmap is released once every city is built
+        HeightMap heightMap;
+        SimCraftSettings settings = this.region.getLevel().getSettings();
+        HeightStorage mosaicView = this.region.getLevel().getHeightMapView(this.region);
+        if (mosaicView != null) {
+            heightMap = new HeightMap(settings.getHeightStorage().copy(mosaicView));
+        } else {
+            heightMap = new HeightMap(rawHeightMap, city.getDimensions().getX(), city.getDimensions().getY(), SMOOTHING_PASSES, settings.getSmoothingMode(), settings.getHeightStorage());
+        }
 
         // Set our city heightmap
         this.heightMap = heightMap;
@@ -112,129 +92,196 @@ public class CityTerrainGenerator {
         // first in the array. SimCity considers its X tile to what
         // Minecraft uses as Z, and it's Y tile as what Minecraft
         // uses as X.
+        int width = rawHeightMap[0].length - 1;
+        int length = rawHeightMap.length - 1;
+        double maxProgress = width * length;
         AtomicInteger itr = new AtomicInteger(0);
-        double maxProgress = (rawHeightMap.length - 1) * (rawHeightMap.length - 1);
-
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
-        for (int cz = 0; cz < rawHeightMap.length - 1; cz++) {
-            float[] zPositions = rawHeightMap[cz];
-            for (int cx = 0; cx < zPositions.length - 1; cx++) {
-                int chunkX = cx;
-                int chunkZ = cz;
-
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                    // Check if we have a schematic occupying this chunk. This allows the terrain generator
-                    // to use blocks from the schematic rather than the default ones. Main purpose for this is to
-                    // allow for certain tiles (i.e. agriculture tiles) to blend in with the terrain, so they don't look
-                    // like terraces.
-                    ThreeDimensionalPositionList occupiedPositions;
-                    ObjectIntPair<Schematic> occupyingSchematic = this.tileSchematics.get(chunkX, chunkZ);
-                    if (occupyingSchematic != null) {
-                        occupiedPositions = new ThreeDimensionalPositionList();
-                        occupyingSchematic.key().paste(this.region.getLevel().getLevel(), Vector3i.from(chunkX << 4, 0, chunkZ << 4), occupyingSchematic.valueInt(), (initialPos, schemPos) -> {
-                            int blockX = schemPos.getX();
-                            int blockZ = schemPos.getZ();
-
-                            float height = heightMap.getData()[blockZ][blockX] / this.heightDivisor;
-                            occupiedPositions.add(blockX, GenericMath.floor(height + initialPos.getY()), blockZ);
-                            return Vector3i.from(
-                                    blockX + this.region.getMinPosition().getX(),
-                                    height + initialPos.getY(),
-                                    blockZ +  this.region.getMinPosition().getY()
-                            );
-                        }, false, false);
-                    } else {
-                        occupiedPositions = null;
-                    }
 
-                    NetworkData groundNetwork = this.region.getNetworkBuilder().getGroundNetwork(chunkX, chunkZ);
+        this.region.getLevel().getScheduler().run("terrain generation for " + city.getName(), width, length, (chunkX, chunkZ) -> {
+            // Check if we have a schematic occupying this chunk. This allows the terrain generator
+            // to use blocks from the schematic rather than the default ones. Main purpose for this is to
+            // allow for certain tiles (i.e. agriculture tiles) to blend in with the terrain, so they don't look
+            // like terraces.
+            ThreeDimensionalPositionList occupiedPositions;
+            ObjectIntPair<Schematic> occupyingSchematic = this.tileSchematics.get(chunkX, chunkZ);
+            if (occupyingSchematic != null) {
+                occupiedPositions = new ThreeDimensionalPositionList();
+                int minX = this.region.getMinPosition().getX();
+                int minZ = this.region.getMinPosition().getY();
+                occupyingSchematic.key().paste(this.region.getStorage(), Vector3i.from((chunkX << 4) + minX, 0, (chunkZ << 4) + minZ), occupyingSchematic.valueInt(), (x, y, z, pasteX, pasteY, pasteZ) -> {
+                    int blockX = pasteX - minX;
+                    int blockZ = pasteZ - minZ;
+
+                    float height = heightMap.get(blockX, blockZ) / this.heightDivisor;
+                    int blockY = GenericMath.floor(height + y);
+                    occupiedPositions.add(blockX, blockY, blockZ);
+                    return blockY;
+                }, false, false);
+            } else {
+                occupiedPositions = null;
+            }
+
+            NetworkData groundNetwork = this.region.getNetworkBuilder().getGroundNetwork(chunkX, chunkZ);
 
-                    LotData lot = this.region.getLot(chunkX, chunkZ);
-                    for (int x = 0; x < 16; x++) {
-                        for (int z = 0; z < 16; z++) {
-                            int blockX = (chunkX << 4) + x;
-                            int blockZ = (chunkZ << 4) + z;
-                            float height = (lot != null && occupyingSchematic == null) ? lot.getYPosition() : heightMap.getHeight(blockX, blockZ);
+            // Stone ranges of each column, only tracked when no schematic occupies the chunk
+            int[] stoneMinY = occupiedPositions == null ? new int[16 * 16] : null;
+            int[] stoneMaxY = occupiedPositions == null ? new int[16 * 16] : null;
 
-                            // Update our heightmap (needed for lot retaining walls)
-                            heightMap.getData()[blockZ][blockX] = height;
+            LotData lot = this.region.getLot(chunkX, chunkZ);
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    int blockX = (chunkX << 4) + x;
+                    int blockZ = (chunkZ << 4) + z;
+                    float height = (lot != null && occupyingSchematic == null) ? lot.getYPosition() : heightMap.getHeight(blockX, blockZ);
 
-                            // Use ground network height if we have one
-                            if (groundNetwork != null) {
-                                height = groundNetwork.getMinPosition().getY() - NetworkPiece.DEPTH;
-                            }
+                    // Update our heightmap (needed for lot retaining walls)
+                    heightMap.set(blockX, blockZ, height);
 
-                            // Generate water if the terrain is below the water Y
-                            int blockHeight = GenericMath.floor(height / this.heightDivisor);
+                    // Use ground network height if we have one
+                    if (groundNetwork != null) {
+                        height = groundNetwork.getMinPosition().getY() - NetworkPiece.DEPTH;
+                    }
 
-                            boolean generateWater = blockHeight < (WATER_Y_LEVEL / this.heightDivisor);
-                            if (generateWater) {
-                                this.region.setBlockState(blockX, (WATER_Y_LEVEL / this.heightDivisor), blockZ, WATER);
-                            }
+                    // Generate water if the terrain is below the water Y
+                    int blockHeight = GenericMath.floor(height / this.heightDivisor);
 
-                            if (generateWater || (blockHeight - (SAND_WATER_HEIGHT_LEVEL / this.heightDivisor)) < (WATER_Y_LEVEL / this.heightDivisor)) {
-                                this.region.setBlockState(blockX, blockHeight, blockZ, SAND);
-                                for (int i = 0; i < (STONE_DEPTH + DIRT_DEPTH) / this.heightDivisor; i++) {
-                                    this.region.setBlockState(blockX, --blockHeight, blockZ, SAND);
-                                }
+                    boolean generateWater = blockHeight < (WATER_Y_LEVEL / this.heightDivisor);
+                    if (generateWater) {
+                        this.region.setBlockState(blockX, (WATER_Y_LEVEL / this.heightDivisor), blockZ, WATER);
+                    }
 
-                                // Set stone so sand doesn't fall
-                                this.region.setBlockState(blockX, --blockHeight, blockZ, STONE);
-                                continue;
-                            }
+                    if (generateWater || (blockHeight - (SAND_WATER_HEIGHT_LEVEL / this.heightDivisor)) < (WATER_Y_LEVEL / this.heightDivisor)) {
+                        int sandDepth = (STONE_DEPTH + DIRT_DEPTH) / this.heightDivisor;
+                        this.region.fill(blockX, blockHeight - sandDepth, blockZ, blockX, blockHeight, blockZ, SAND);
 
-                            int stoneChance = STONE_CHANCE;
+                        // Set stone so sand doesn't fall
+                        if (stoneMinY != null) {
+                            stoneMinY[(z << 4) | x] = blockHeight - sandDepth - 1;
+                            stoneMaxY[(z << 4) | x] = blockHeight - sandDepth - 1;
+                        } else {
+                            this.region.setBlockState(blockX, blockHeight - sandDepth - 1, blockZ, STONE);
+                        }
+                        continue;
+                    }
 
-                            // When we get to halfway above the world height, start reducing the visibility of grass
-                            int halfwayPoint = (this.getHeight() / 2);
-                            if (blockHeight > halfwayPoint) {
-                                stoneChance = Math.max(STONE_CHANCE, GenericMath.floor(((double) ((blockHeight - halfwayPoint) * 2) / this.getHeight()) * 100));
-                            }
+                    int stoneChance = STONE_CHANCE;
 
-                            // Don't place ground level if we have a schematic occupying the terrain or a network
-                            if (occupyingSchematic == null && groundNetwork == null) {
-                                this.region.setBlockState(blockX, blockHeight, blockZ, ThreadLocalRandom.current().nextInt(0, 100) <= stoneChance ? STONE : GRASS);
-                            }
+                    // When we get to halfway above the world height, start reducing the visibility of grass
+                    int halfwayPoint = (this.getHeight() / 2);
+                    if (blockHeight > halfwayPoint) {
+                        stoneChance = Math.max(STONE_CHANCE, GenericMath.floor(((double) ((blockHeight - halfwayPoint) * 2) / this.getHeight()) * 100));
+                    }
 
-                            for (int i = 0; i < GenericMath.ceil((double) DIRT_DEPTH / this.heightDivisor); i++) {
-                                int blockY = --blockHeight;
+                    // Don't place ground level if we have a schematic occupying the terrain or a network
+                    if (occupyingSchematic == null && groundNetwork == null) {
+                        this.region.setBlockState(blockX, blockHeight, blockZ, ThreadLocalRandom.current().nextInt(0, 100) <= stoneChance ? STONE : GRASS);
+                    }
 
-                                // Ensure we are not placing any terrain blocks on top of a schematic
-                                if (occupiedPositions != null && occupiedPositions.contains(blockX, blockHeight, blockZ)) {
-                                    continue;
-                                }
+                    int dirtDepth = GenericMath.ceil((double) DIRT_DEPTH / this.heightDivisor);
+                    int stoneDepth = STONE_DEPTH / this.heightDivisor;
 
-                                this.region.setBlockState(blockX, blockY, blockZ, DIRT);
-                            }
+                    // Nothing to avoid in this column, so fill the dirt layer in one go
+                    // and leave the stone to be filled for the whole chunk at once
+                    if (occupiedPositions == null) {
+                        this.region.fill(blockX, blockHeight - dirtDepth, blockZ, blockX, blockHeight - 1, blockZ, DIRT);
 
-                            for (int i = 0; i < STONE_DEPTH / this.heightDivisor; i++) {
-                                int blockY = --blockHeight;
+                        stoneMinY[(z << 4) | x] = blockHeight - dirtDepth - stoneDepth;
+                        stoneMaxY[(z << 4) | x] = blockHeight - dirtDepth - 1;
+                        continue;
+                    }
 
-                                // Ensure we are not placing any terrain blocks on top of a schematic
-                                if (occupiedPositions != null && occupiedPositions.contains(blockX, blockHeight, blockZ)) {
-                                    continue;
-                                }
+                    for (int i = 0; i < dirtDepth; i++) {
+                        int blockY = --blockHeight;
 
-                                this.region.setBlockState(blockX, blockY, blockZ, STONE);
-                            }
+                        // Ensure we are not placing any terrain blocks on top of a schematic
+                        if (occupiedPositions != null && occupiedPositions.contains(blockX, blockHeight, blockZ)) {
+                            continue;
                         }
+
+                        this.region.setBlockState(blockX, blockY, blockZ, DIRT);
                     }
 
-                    buildState.setProgress(itr.getAndIncrement() / maxProgress);
-                }, threadPool);
+                    for (int i = 0; i < stoneDepth; i++) {
+                        int blockY = --blockHeight;
 
-                futures.add(future);
+                        // Ensure we are not placing any terrain blocks on top of a schematic
+                        if (occupiedPositions != null && occupiedPositions.contains(blockX, blockHeight, blockZ)) {
+                            continue;
+                        }
+
+                        this.region.setBlockState(blockX, blockY, blockZ, STONE);
+                    }
+                }
+            }
+
+            if (stoneMinY != null) {
+                this.fillStone(chunkX, chunkZ, stoneMinY, stoneMaxY);
             }
+
+            buildState.setProgress(itr.getAndIncrement() / maxProgress);
+        });
+    }
+
+    /**
+     * Creates the unsmoothed heightmap of the city, with lots
+     * and networks flattened to their own heights.
+     *
+     * @return the raw heightmap of the city
+     */
+    public float[][] createRawHeightMap() {
+        float[][] cityHeightMap = this.region.getCity().getHeightMap();
+        float[][] rawHeightMap = new float[cityHeightMap.length][];
+        for (int i = 0; i < cityHeightMap.length; i++) {
+            rawHeightMap[i] = cityHeightMap[i].clone();
         }
 
-        CompletableFuture<Void> future = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
-        try {
-            future.get(5, TimeUnit.MINUTES);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            throw new RuntimeException("Failed to generate terrain", ex);
+        // Sync our lot heights
+        this.region.getLots().forEach((x, y, lot) -> rawHeightMap[y][x] = lot.getYPosition());
+
+        // Sync our network heights
+        this.region.getNetworkBuilder().getGroundLevelNetwork().forEach((x, y, network) -> rawHeightMap[y][x] = network.getPosition().getY() - 2);
+        return rawHeightMap;
+    }
+
+    /**
+     * Fills the stone layer of every column in the given chunk.
+     * <p>
+     * The stone range shared by every column is filled as a single
+     * box, so any section entirely within it is stored as a uniform
+     * stone section rather than block by block. Only the parts of
+     * each column outside the shared range are filled per column.
+     *
+     * @param chunkX the chunk X position
+     * @param chunkZ the chunk Z position
+     * @param minY the minimum stone Y position of each column
+     * @param maxY the maximum stone Y position of each column
+     */
+    private void fillStone(int chunkX, int chunkZ, int[] minY, int[] maxY) {
+        int sharedMinY = Integer.MIN_VALUE;
+        int sharedMaxY = Integer.MAX_VALUE;
+        for (int i = 0; i < minY.length; i++) {
+            sharedMinY = Math.max(sharedMinY, minY[i]);
+            sharedMaxY = Math.min(sharedMaxY, maxY[i]);
         }
 
-        threadPool.shutdown();
+        int blockX = chunkX << 4;
+        int blockZ = chunkZ << 4;
+        if (sharedMinY > sharedMaxY) {
+            for (int i = 0; i < minY.length; i++) {
+                this.region.fill(blockX + (i & 15), minY[i], blockZ + (i >> 4), blockX + (i & 15), maxY[i], blockZ + (i >> 4), STONE);
+            }
+
+            return;
+        }
+
+        this.region.fill(blockX, sharedMinY, blockZ, blockX + 15, sharedMaxY, blockZ + 15, STONE);
+        for (int i = 0; i < minY.length; i++) {
+            int x = blockX + (i & 15);
+            int z = blockZ + (i >> 4);
+
+            this.region.fill(x, minY[i], z, x, sharedMinY - 1, z, STONE);
+            this.region.fill(x, sharedMaxY + 1, z, x, maxY[i], z, STONE);
+        }
     }
 
     public int getHeight(int x, int z) {
@@ -0,0 +1,177 @@
+package me.redned.simcraft.schematic;
+
+import lombok.Getter;
+import me.redned.levelparser.BlockState;
+import me.redned.simcraft.util.BlockRotationUtil;
+import me.redned.simcraft.util.function.TriIntObjConsumer;
+
+import java.util.Objects;
+
+/**
+ * Dense block storage for a schematic.
+ * <p>
+ * Blocks are stored as indices into a palette, using a byte
+ * per block when the palette is small enough, or a short per
+ * block otherwise. Indices are laid out in the same order as
+ * the schematic format, meaning X is the fastest changing axis,
+ * followed by Z and then Y.
+ * <p>
+ * The palette is also stored pre-rotated at every 90 degree
+ * angle, so rotating the blocks only means swapping palettes.
+ */
+public class PalettedBlockStorage {
+    private static final int OBJECT_HEADER_SIZE = 16;
+    private static final int REFERENCE_SIZE = 8;
+
+    @Getter
+    private final int width;
+    @Getter
+    private final int height;
+    @Getter
+    private final int length;
+
+    private final BlockState[] palette;
+    // The palette rotated at 0, 90, 180 and 270 degrees
+    private final BlockState[][] rotatedPalettes;
+    // If each palette entry is air (or missing)
+    private final boolean[] airPalette;
+
+    private final byte[] byteIndices;
+    private final short[] shortIndices;
+
+    public PalettedBlockStorage(int width, int height, int length, BlockState[] palette, int[] indices) {
+        if (indices.length != width * height * length) {
+            throw new IllegalArgumentException("Expected " + (width * height * length) + " block indices but got " + indices.length + "!");
+        }
+
+        if (palette.length > 0xFFFF + 1) {
+            throw new IllegalArgumentException("Palette size of " + palette.length + " is too large!");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.palette = palette;
+        this.rotatedPalettes = new BlockState[][] {
+                palette,
+                BlockRotationUtil.rotatePalette(palette, 90),
+                BlockRotationUtil.rotatePalette(palette, 180),
+                BlockRotationUtil.rotatePalette(palette, 270)
+        };
+
+        this.airPalette = new boolean[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            this.airPalette[i] = palette[i] == null || BlockState.AIR.equals(palette[i]);
+        }
+
+        if (palette.length <= 0xFF + 1) {
+            this.byteIndices = new byte[indices.length];
+            this.shortIndices = null;
+            for (int i = 0; i < indices.length; i++) {
+                this.byteIndices[i] = (byte) indices[i];
+            }
+        } else {
+            this.byteIndices = null;
+            this.shortIndices = new short[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                this.shortIndices[i] = (short) indices[i];
+            }
+        }
+    }
+
+    public int getIndex(int x, int y, int z) {
+        return (y * this.length + z) * this.width + x;
+    }
+
+    public int getPaletteIndex(int index) {
+        if (this.byteIndices != null) {
+            return this.byteIndices[index] & 0xFF;
+        }
+
+        return this.shortIndices[index] & 0xFFFF;
+    }
+
+    public BlockState getBlockState(int x, int y, int z) {
+        return this.palette[this.getPaletteIndex(this.getIndex(x, y, z))];
+    }
+
+    public BlockState getPaletteEntry(int paletteIndex) {
+        return this.palette[paletteIndex];
+    }
+
+    /**
+     * Gets the palette with every state rotated by the given angle.
+     *
+     * @param rotation the rotation angle, in multiples of 90
+     * @return the rotated palette
+     */
+    public BlockState[] getPalette(int rotation) {
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("Angle used for rotation was not divisible by 90!");
+        }
+
+        return this.rotatedPalettes[Math.floorMod(rotation / 90, 4)];
+    }
+
+    /**
+     * Gets if the given palette entry is air, or has
+     * no state at all.
+     *
+     * @param paletteIndex the index in the palette
+     * @return if the palette entry is air
+     */
+    public boolean isAir(int paletteIndex) {
+        return this.airPalette[paletteIndex];
+    }
+
+    public int getPaletteSize() {
+        return this.palette.length;
+    }
+
+    public int size() {
+        return this.width * this.height * this.length;
+    }
+
+    /**
+     * Iterates over every block in this storage in memory order,
+     * with X being the innermost loop, followed by Z and then Y.
+     *
+     * @param consumer the consumer to accept each block
+     */
+    public void forEach(TriIntObjConsumer<? super BlockState> consumer) {
+        this.forEach(0, consumer);
+    }
+
+    /**
+     * Iterates over every block in this storage in memory order,
+     * with each state rotated by the given angle.
+     *
+     * @param rotation the rotation angle, in multiples of 90
+     * @param consumer the consumer to accept each block
+     */
+    public void forEach(int rotation, TriIntObjConsumer<? super BlockState> consumer) {
+        Objects.requireNonNull(consumer);
+
+        BlockState[] palette = this.getPalette(rotation);
+
+        int index = 0;
+        for (int y = 0; y < this.height; y++) {
+            for (int z = 0; z < this.length; z++) {
+                for (int x = 0; x < this.width; x++) {
+                    consumer.accept(x, y, z, palette[this.getPaletteIndex(index++)]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the approximate amount of heap memory, in bytes,
+     * used by this storage.
+     *
+     * @return the approximate memory footprint of this storage
+     */
+    public long getMemoryFootprint() {
+        long indices = this.byteIndices != null ? this.byteIndices.length : this.shortIndices.length * 2L;
+        return OBJECT_HEADER_SIZE * 8L + indices + (long) this.palette.length * (REFERENCE_SIZE * this.rotatedPalettes.length + 1);
+    }
+}
@@ -0,0 +1,22 @@
+package me.redned.simcraft.schematic;
+
+/**
+ * Operator used to adjust the Y position of each
+ * block when a schematic is pasted.
+ */
+@FunctionalInterface
+public interface PasteHeightOperator {
+
+    /**
+     * Gets the Y position the given block should be pasted at.
+     *
+     * @param x the X position of the block within the schematic
+     * @param y the Y position of the block within the schematic
+     * @param z the Z position of the block within the schematic
+     * @param pasteX the X position the block is being pasted at
+     * @param pasteY the Y position the block would be pasted at
+     * @param pasteZ the Z position the block is being pasted at
+     * @return the Y position to paste the block at
+     */
+    int apply(int x, int y, int z, int pasteX, int pasteY, int pasteZ);
+}
@@ -0,0 +1,29 @@
+package me.redned.simcraft.schematic;
+
+import org.cloudburstmc.math.vector.Vector3i;
+import org.cloudburstmc.nbt.NbtMap;
+
+/**
+ * The metadata of a schematic describing how it should
+ * be placed, parsed once when the schematic is loaded.
+ *
+ * @param terrainBlend if the schematic is blended into the terrain rather than pasted on top of it
+ * @param occupyChunk if the schematic is always pasted at the min position of its chunk
+ * @param offset the offset the schematic is pasted at
+ * @param pasteAir if air in the schematic is always pasted
+ */
+public record PlacementMetadata(boolean terrainBlend, boolean occupyChunk, Vector3i offset, boolean pasteAir) {
+
+    public static PlacementMetadata parse(NbtMap metadata) {
+        return new PlacementMetadata(
+                metadata.getBoolean("SCTerrainBlend", false),
+                metadata.getBoolean("SCOccupyChunk", false),
+                Vector3i.from(
+                        metadata.getInt("SCOffsetX", 0),
+                        metadata.getInt("SCOffsetY", 0),
+                        metadata.getInt("SCOffsetZ", 0)
+                ),
+                metadata.getBoolean("SCPasteAir", false)
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package me.redned.simcraft.schematic;
+
+import org.cloudburstmc.math.GenericMath;
+
+/**
+ * An integer transform that rotates schematic positions
+ * around the Y axis.
+ * <p>
+ * This produces the same positions as
+ * {@link me.redned.simcraft.util.MathUtil#rotateAroundYAxis(int, int, double, double, double, int, boolean)},
+ * but the axis offsets are floored once up front, so each
+ * position only needs an axis swap, sign flip and offset.
+ *
+ * @param xx the multiplier of the X position used for the new X position
+ * @param xz the multiplier of the Z position used for the new X position
+ * @param offsetX the offset added to the new X position
+ * @param zx the multiplier of the X position used for the new Z position
+ * @param zz the multiplier of the Z position used for the new Z position
+ * @param offsetZ the offset added to the new Z position
+ */
+public record RotationTransform(int xx, int xz, int offsetX, int zx, int zz, int offsetZ) {
+
+    public int transformX(int x, int z) {
+        return this.xx * x + this.xz * z + this.offsetX;
+    }
+
+    public int transformZ(int x, int z) {
+        return this.zx * x + this.zz * z + this.offsetZ;
+    }
+
+    /**
+     * Gets the original X position of a transformed position.
+     *
+     * @param x the transformed X position
+     * @param z the transformed Z position
+     * @return the original X position
+     */
+    public int inverseX(int x, int z) {
+        // Rotations are orthogonal, so the inverse is the transpose
+        return this.xx * (x - this.offsetX) + this.zx * (z - this.offsetZ);
+    }
+
+    /**
+     * Gets the original Z position of a transformed position.
+     *
+     * @param x the transformed X position
+     * @param z the transformed Z position
+     * @return the original Z position
+     */
+    public int inverseZ(int x, int z) {
+        return this.xz * (x - this.offsetX) + this.zz * (z - this.offsetZ);
+    }
+
+    public static RotationTransform of(double axisX, double axisZ, int angle, boolean rotateCenter) {
+        // Positions are integers, so floor(position + offset) is the
+        // same as position + floor(offset), letting us floor the offsets here
+        double zPlane = rotateCenter ? axisX : Math.min(axisZ, axisX);
+        double xPlane = rotateCenter ? axisZ : Math.max(axisX, axisZ);
+
+        return switch (angle) {
+            case 0 -> new RotationTransform(
+                    1, 0, 0,
+                    0, 1, axisX > axisZ ? 1 : 0
+            );
+            case 90 -> new RotationTransform(
+                    0, 1, GenericMath.floor((zPlane - axisZ) + ((axisX > axisZ) ? 1 : 0)),
+                    -1, 0, GenericMath.floor((xPlane + axisX) - 1)
+            );
+            case 180 -> new RotationTransform(
+                    -1, 0, GenericMath.floor((axisX * 2) - 1),
+                    0, -1, GenericMath.floor((axisZ * 2) - 1 + (axisX > axisZ ? -1 : 0))
+            );
+            case 270 -> new RotationTransform(
+                    0, -1, GenericMath.floor((zPlane + axisZ) - 1),
+                    1, 0, GenericMath.floor((xPlane - axisX) + ((axisZ > axisX) ? 1 : 0))
+            );
+            default -> throw new IllegalArgumentException("Unsupported rotation angle " + angle);
+        };
+    }
+}
@@ -1,26 +1,20 @@
 package me.redned.simcraft.schematic;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import me.redned.levelparser.BlockState;
-import me.redned.levelparser.Chunk;
-import me.redned.levelparser.Level;
-import me.redned.simcraft.util.BlockRotationUtil;
-import me.redned.simcraft.util.MathUtil;
 import me.redned.simcraft.util.collection.ThreeDimensionalPositionMap;
+import me.redned.simcraft.world.ChunkStorage;
+import me.redned.simcraft.world.WorldChunk;
 import org.cloudburstmc.math.vector.Vector3d;
 import org.cloudburstmc.math.vector.Vector3i;
 import org.cloudburstmc.nbt.NbtMap;
 import org.cloudburstmc.nbt.NbtMapBuilder;
 import org.cloudburstmc.nbt.NbtType;
-import org.cloudburstmc.nbt.util.VarInts;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.BinaryOperator;
 
 @Getter
 @AllArgsConstructor
@@ -30,23 +24,35 @@ public class Schematic {
     private final int width;
     private final int height;
     private final int length;
-    private final ThreeDimensionalPositionMap<BlockState> blocks;
+    private final PalettedBlockStorage blocks;
     private final ThreeDimensionalPositionMap<NbtMap> blockEntities;
     private final NbtMap metadata;
+    private final PlacementMetadata placementMetadata;
 
     private final Vector3d centerPosition;
     private final Vector3d axisPosition;
 
+    // Transforms for each rotation, both with and without the center rotated
+    @Getter(AccessLevel.NONE)
+    private final RotationTransform[] rotationTransforms;
+
     public static Schematic parse(NbtMap nbt) {
-        Map<Integer, BlockState> palette = new HashMap<>();
-        for (Map.Entry<String, Object> entry : nbt.getCompound("Palette").entrySet()) {
+        NbtMap paletteTag = nbt.getCompound("Palette");
+
+        int paletteSize = 0;
+        for (Object value : paletteTag.values()) {
+            paletteSize = Math.max(paletteSize, (int) value + 1);
+        }
+
+        BlockState[] palette = new BlockState[paletteSize];
+        for (Map.Entry<String, Object> entry : paletteTag.entrySet()) {
             int value = (int) entry.getValue();
             String identifier = entry.getKey();
 
             // Parse states
             String[] split = identifier.split("\\[");
             if (split.length == 1) {
-                palette.put(value, BlockState.of(identifier));
+                palette[value] = BlockState.of(identifier);
                 continue;
             }
 
@@ -59,7 +65,7 @@ public class Schematic {
                 properties.put(property[0], property[1]);
             }
 
-            palette.put(value, BlockState.of(cleanIdentifier, properties));
+            palette[value] = BlockState.of(cleanIdentifier, properties);
         }
 
         int width = nbt.getShort("Width") & 0xFFFF;
@@ -67,28 +73,38 @@ public class Schematic {
         int length = nbt.getShort("Length") & 0xFFFF;
 
         byte[] blockData = nbt.getByteArray("BlockData");
+        int[] indices = new int[width * height * length];
 
-        ThreeDimensionalPositionMap<BlockState> blocks = new ThreeDimensionalPositionMap<>();
-
+        // Block data is a sequence of unsigned varints, one per block
         int index = 0;
-        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(blockData))) {
-            while (input.available() > 0) {
-                int nextId = VarInts.readUnsignedInt(input);
-                BlockState state = palette.get(nextId);
-
-                int y = index / (width * length);
-                int remainder = index - (y * width * length);
-                int z = remainder / width;
-                int x = remainder - z * width;
-
-                blocks.put(x, y, z, state);
-                index++;
+        int position = 0;
+        while (position < blockData.length && index < indices.length) {
+            int value = 0;
+            int shift = 0;
+            byte next;
+            do {
+                if (position >= blockData.length) {
+                    throw new IllegalArgumentException("Block data ended in the middle of the varint for block " + index + "!");
+                }
+
+                next = blockData[position++];
+                value |= (next & 0x7F) << shift;
+                shift += 7;
+            } while ((next & 0x80) != 0);
+
+            if (value >= palette.length) {
+                throw new IllegalArgumentException("Block data referenced palette index " + value + " but the palette only has " + palette.length + " entries!");
             }
 
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+            indices[index++] = value;
         }
 
+        if (index != indices.length) {
+            throw new IllegalArgumentException("Block data only held " + index + " blocks but the schematic has " + indices.length + " blocks!");
+        }
+
+        PalettedBlockStorage blocks = new PalettedBlockStorage(width, height, length, palette, indices);
+
         ThreeDimensionalPositionMap<NbtMap> blockEntities = new ThreeDimensionalPositionMap<>();
         for (NbtMap blockEntity : nbt.getList("BlockEntities", NbtType.COMPOUND)) {
             int[] pos = blockEntity.getIntArray("Pos");
@@ -122,6 +138,12 @@ public class Schematic {
                 metadata.getDouble("SCAxisZ", centerPos.getZ())
         );
 
+        RotationTransform[] rotationTransforms = new RotationTransform[8];
+        for (int i = 0; i < 4; i++) {
+            rotationTransforms[i << 1] = RotationTransform.of(axisPos.getX(), axisPos.getZ(), i * 90, false);
+            rotationTransforms[(i << 1) | 1] = RotationTransform.of(axisPos.getX(), axisPos.getZ(), i * 90, true);
+        }
+
         return new Schematic(
                 nbt.getInt("Version"),
                 nbt.getInt("DataVersion"),
@@ -131,11 +153,23 @@ public class Schematic {
                 blocks,
                 blockEntities,
                 metadata,
+                PlacementMetadata.parse(metadata),
                 centerPos,
-                axisPos
+                axisPos,
+                rotationTransforms
         );
     }
 
+    /**
+     * Gets the approximate amount of heap memory, in bytes,
+     * used by the blocks of this schematic.
+     *
+     * @return the approximate memory footprint of this schematic
+     */
+    public long getMemoryFootprint() {
+        return this.blocks.getMemoryFootprint();
+    }
+
     public Vector3i getMinPosition() {
         return Vector3i.ZERO;
     }
@@ -144,51 +178,114 @@ public class Schematic {
         return Vector3i.from(this.width, this.height, this.length).sub(Vector3i.ONE);
     }
 
-    public void paste(Level level, Vector3i position, boolean pasteAir) {
-        this.paste(level, position, 0, pasteAir, false);
+    public void paste(ChunkStorage storage, Vector3i position, boolean pasteAir) {
+        this.paste(storage, position, 0, pasteAir, false);
     }
 
-    public void paste(Level level, Vector3i position, int rotation, boolean pasteAir, boolean rotateCenter) {
-        this.paste(level, position, rotation, null, pasteAir, rotateCenter);
+    public void paste(ChunkStorage storage, Vector3i position, int rotation, boolean pasteAir, boolean rotateCenter) {
+        this.paste(storage, position, rotation, null, pasteAir, rotateCenter);
     }
 
-    public void paste(Level level, Vector3i position, int rotation, BinaryOperator<Vector3i> positionOperator, boolean pasteAir, boolean rotateCenter) {
+    public void paste(ChunkStorage storage, Vector3i position, int rotation, PasteHeightOperator heightOperator, boolean pasteAir, boolean rotateCenter) {
         if (rotation % 90 != 0) {
             throw new IllegalArgumentException("Angle used for rotation was not divisible by 90!");
         }
 
-        pasteAir |= this.getMetadata().getBoolean("SCPasteAir", false);
-
-        Vector3d axisPosition = this.getAxisPosition();
-
-        boolean finalPasteAir = pasteAir;
-        this.blocks.forEach((x, y, z, state) -> {
-            Vector3i schemPos = position.add(MathUtil.rotateAroundYAxis(x, z, axisPosition.getX(), y, axisPosition.getZ(), rotation, rotateCenter));
-            if (positionOperator != null) {
-                schemPos = positionOperator.apply(Vector3i.from(x, y, z), schemPos);
-            }
-
-            if (state == null || (!finalPasteAir && BlockState.AIR.equals(state))) {
-                return;
+        pasteAir |= this.placementMetadata.pasteAir();
+
+        RotationTransform transform = this.getRotationTransform(rotation, rotateCenter);
+
+        // The palette is already rotated, so each block only needs its position rotated
+        BlockState[] palette = this.blocks.getPalette(rotation);
+
+        int baseX = position.getX();
+        int baseY = position.getY();
+        int baseZ = position.getZ();
+
+        SchematicFootprint footprint = this.getFootprint(transform, baseX, baseZ);
+        int minX = footprint.minX();
+        int maxX = footprint.maxX();
+        int minZ = footprint.minZ();
+        int maxZ = footprint.maxZ();
+
+        // Paste a chunk at a time, so each chunk is only locked once
+        // rather than for every block
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                int chunkMinX = Math.max(minX, chunkX << 4);
+                int chunkMaxX = Math.min(maxX, (chunkX << 4) + 15);
+                int chunkMinZ = Math.max(minZ, chunkZ << 4);
+                int chunkMaxZ = Math.min(maxZ, (chunkZ << 4) + 15);
+
+                WorldChunk chunk = storage.getChunk(chunkX, chunkZ);
+                synchronized (chunk) {
+                    for (int pasteZ = chunkMinZ; pasteZ <= chunkMaxZ; pasteZ++) {
+                        for (int pasteX = chunkMinX; pasteX <= chunkMaxX; pasteX++) {
+                            int x = transform.inverseX(pasteX - baseX, pasteZ - baseZ);
+                            int z = transform.inverseZ(pasteX - baseX, pasteZ - baseZ);
+
+                            for (int y = 0; y < this.height; y++) {
+                                int paletteIndex = this.blocks.getPaletteIndex(this.blocks.getIndex(x, y, z));
+
+                                int pasteY = baseY + y;
+                                if (heightOperator != null) {
+                                    pasteY = heightOperator.apply(x, y, z, pasteX, pasteY, pasteZ);
+                                }
+
+                                BlockState state = palette[paletteIndex];
+                                if (state == null || (!pasteAir && this.blocks.isAir(paletteIndex))) {
+                                    continue;
+                                }
+
+                                chunk.setBlockState(pasteX & 15, pasteY, pasteZ & 15, state);
+                            }
+                        }
+                    }
+                }
             }
-
-            level.setBlockState(schemPos.getX(), schemPos.getY(), schemPos.getZ(), BlockRotationUtil.rotate(state, rotation));
-        });
+        }
 
         this.blockEntities.forEach((x, y, z, blockEntity) -> {
-            Vector3i schemPos = position.add(MathUtil.rotateAroundYAxis(x, z, axisPosition.getX(), y, axisPosition.getZ(), rotation, rotateCenter));
-            if (positionOperator != null) {
-                schemPos = positionOperator.apply(Vector3i.from(x, y, z), schemPos);
+            int pasteX = baseX + transform.transformX(x, z);
+            int pasteY = baseY + y;
+            int pasteZ = baseZ + transform.transformZ(x, z);
+            if (heightOperator != null) {
+                pasteY = heightOperator.apply(x, y, z, pasteX, pasteY, pasteZ);
             }
 
             NbtMap blockEntityTag = blockEntity.toBuilder()
-                    .putInt("x", schemPos.getX())
-                    .putInt("y", schemPos.getY())
-                    .putInt("z", schemPos.getZ())
+                    .putInt("x", pasteX)
+                    .putInt("y", pasteY)
+                    .putInt("z", pasteZ)
                     .build();
 
-            Chunk chunk = level.getChunk(schemPos.getX() >> 4, schemPos.getZ() >> 4);
-            chunk.getBlockEntities().add(blockEntityTag);
+            storage.getChunk(pasteX >> 4, pasteZ >> 4).getBlockEntities().add(blockEntityTag);
         });
     }
+
+    /**
+     * Gets the area of blocks this schematic covers when pasted
+     * at the given position with the given rotation.
+     *
+     * @param position the position the schematic is pasted at
+     * @param rotation the rotation angle, in multiples of 90
+     * @param rotateCenter if the schematic is rotated around its center
+     * @return the footprint of the pasted schematic
+     */
+    public SchematicFootprint getFootprint(Vector3i position, int rotation, boolean rotateCenter) {
+        return this.getFootprint(this.getRotationTransform(rotation, rotateCenter), position.getX(), position.getZ());
+    }
+
+    private SchematicFootprint getFootprint(RotationTransform transform, int baseX, int baseZ) {
+        int cornerX1 = baseX + transform.transformX(0, 0);
+        int cornerX2 = baseX + transform.transformX(this.width - 1, this.length - 1);
+        int cornerZ1 = baseZ + transform.transformZ(0, 0);
+        int cornerZ2 = baseZ + transform.transformZ(this.width - 1, this.length - 1);
+
+        return new SchematicFootprint(Math.min(cornerX1, cornerX2), Math.min(cornerZ1, cornerZ2), Math.max(cornerX1, cornerX2), Math.max(cornerZ1, cornerZ2));
+    }
+
+    public RotationTransform getRotationTransform(int rotation, boolean rotateCenter) {
+        return this.rotationTransforms[(Math.floorMod(rotation / 90, 4) << 1) | (rotateCenter ? 1 : 0)];
+    }
 }
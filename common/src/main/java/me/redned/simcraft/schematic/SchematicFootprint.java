@@ -0,0 +1,13 @@
+package me.redned.simcraft.schematic;
+
+/**
+ * The area of blocks on the X and Z axis that a schematic
+ * covers once pasted, with both corners inclusive.
+ *
+ * @param minX the minimum X position
+ * @param minZ the minimum Z position
+ * @param maxX the maximum X position
+ * @param maxZ the maximum Z position
+ */
+public record SchematicFootprint(int minX, int minZ, int maxX, int maxZ) {
+}
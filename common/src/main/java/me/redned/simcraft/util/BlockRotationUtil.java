@@ -4,6 +4,7 @@ import me.redned.levelparser.BlockState;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BlockRotationUtil {
     private static final Map<String, Integer> DIRECTION_TO_DEGREE = Map.of(
@@ -13,6 +14,9 @@ public class BlockRotationUtil {
             "east", 270
     );
 
+    // Rotations of each block state, indexed by angle / 90
+    private static final Map<BlockState, BlockState[]> ROTATION_CACHE = new ConcurrentHashMap<>();
+
     public static BlockState rotate(BlockState state, int angle) {
         if (angle == 0 | state.getProperties().isEmpty()) {
             return state;
@@ -22,6 +26,38 @@ public class BlockRotationUtil {
             throw new IllegalArgumentException("Angle used for rotation was not divisible by 90!");
         }
 
+        BlockState[] rotations = ROTATION_CACHE.computeIfAbsent(state, BlockRotationUtil::computeRotations);
+        return rotations[Math.floorMod(angle / 90, 4)];
+    }
+
+    /**
+     * Rotates every state in the given palette by the given angle.
+     * Entries that are null are left as null.
+     *
+     * @param palette the palette to rotate
+     * @param angle the angle to rotate by
+     * @return a new palette with the rotated states
+     */
+    public static BlockState[] rotatePalette(BlockState[] palette, int angle) {
+        BlockState[] rotated = new BlockState[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            BlockState state = palette[i];
+            rotated[i] = state == null ? null : rotate(state, angle);
+        }
+
+        return rotated;
+    }
+
+    private static BlockState[] computeRotations(BlockState state) {
+        return new BlockState[] {
+                state,
+                computeRotation(state, 90),
+                computeRotation(state, 180),
+                computeRotation(state, 270)
+        };
+    }
+
+    private static BlockState computeRotation(BlockState state, int angle) {
         Map<String, Object> properties = new HashMap<>(state.getProperties());
         String facingProperty = (String) state.getProperties().get("facing");
         if (facingProperty != null) {
@@ -29,4 +29,29 @@ public class MathUtil {
 
         throw new IllegalArgumentException("Unsupported rotation angle " + angle);
     }
+
+    /**
+     * Gets the Morton (Z-order) code of the given position, which
+     * interleaves the bits of both axes so that positions close to
+     * one another are usually close together when sorted by code.
+     * <p>
+     * Both positions are treated as unsigned.
+     *
+     * @param x the X position
+     * @param z the Z position
+     * @return the Morton code of the position
+     */
+    public static long getMortonCode(int x, int z) {
+        return spreadBits(x) | (spreadBits(z) << 1);
+    }
+
+    private static long spreadBits(int value) {
+        long bits = value & 0xFFFFFFFFL;
+        bits = (bits | (bits << 16)) & 0x0000FFFF0000FFFFL;
+        bits = (bits | (bits << 8)) & 0x00FF00FF00FF00FFL;
+        bits = (bits | (bits << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | (bits << 2)) & 0x3333333333333333L;
+        bits = (bits | (bits << 1)) & 0x5555555555555555L;
+        return bits;
+    }
 }
@@ -0,0 +1,413 @@
+package me.redned.simcraft.util.concurrent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Schedules work that runs once per chunk across a grid of chunks.
+ * <p>
+ * The grid is split into strips of chunks (one row of chunks per strip)
+ * which are run on a shared work-stealing pool, so idle threads pick up
+ * strips from busier ones. Alternatively, each strip can be run on its own
+ * virtual thread when the runtime supports them.
+ * <p>
+ * Work that touches an area of chunks, such as pasting schematics, can
+ * instead be run as ordered tasks. Tasks touching a common chunk run one
+ * after another in the order they were given, while all other tasks run
+ * concurrently.
+ * <p>
+ * Rather than waiting for a fixed amount of time, a job is only cancelled
+ * once no chunk or task has completed within the stall timeout. Once a job
+ * is cancelled or fails, no further chunks or tasks are started, and any that
+ * are still running are waited on before the failure is reported, so nothing
+ * is still writing to chunks once a job has returned.
+ * <p>
+ * The threads of the scheduler are kept until it is closed.
+ */
+public class ChunkTaskScheduler implements AutoCloseable {
+    private static final long PROGRESS_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    private final ForkJoinPool pool;
+    private final ExecutorService virtualThreadExecutor;
+    private final long stallTimeout;
+
+    public ChunkTaskScheduler(String name, int threads, boolean virtualThreads, long stallTimeout, TimeUnit unit) {
+        this.stallTimeout = unit.toMillis(stallTimeout);
+
+        ExecutorService virtualThreadExecutor = null;
+        if (virtualThreads) {
+            virtualThreadExecutor = createVirtualThreadExecutor();
+            if (virtualThreadExecutor == null) {
+                System.err.println("Virtual threads are not supported by this Java version, using " + threads + " threads for " + name + " instead.");
+            }
+        }
+
+        this.virtualThreadExecutor = virtualThreadExecutor;
+        this.pool = virtualThreadExecutor != null ? null : new ForkJoinPool(
+                Math.max(1, threads),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName(name + " #" + thread.getPoolIndex());
+                    return thread;
+                },
+                (thread, throwable) -> throwable.printStackTrace(),
+                false
+        );
+    }
+
+    /**
+     * Runs the given task once for every chunk in a grid of the given
+     * size, blocking until every chunk has been completed.
+     *
+     * @param name the name of the job, used when reporting failures
+     * @param width the amount of chunks on the X axis
+     * @param length the amount of chunks on the Z axis
+     * @param task the task to run for each chunk
+     */
+    public void run(String name, int width, int length, ChunkTask task) {
+        if (width <= 0 || length <= 0) {
+            return;
+        }
+
+        GridJob job = new GridJob(width, length, task);
+        if (this.virtualThreadExecutor != null) {
+            for (int chunkZ = 0; chunkZ < length; chunkZ++) {
+                int strip = chunkZ;
+                this.virtualThreadExecutor.execute(() -> job.runStrip(strip));
+            }
+        } else {
+            this.pool.execute(new StripAction(job, 0, length));
+        }
+
+        this.await(name, job, (long) width * length, "chunks");
+    }
+
+    /**
+     * Runs the given tasks, each of which only touches the chunks within
+     * its own area, blocking until every task has been completed.
+     * <p>
+     * Each task only starts once every earlier task sharing a chunk with it
+     * has completed, so every chunk sees its tasks in the same order as if
+     * they were all run one after another on a single thread. Tasks that
+     * share no chunks with each other are run concurrently.
+     *
+     * @param name the name of the job, used when reporting failures
+     * @param areas the area of chunks touched by each task, in order
+     * @param task the task to run, given the index of its area
+     */
+    public void runOrdered(String name, List<ChunkArea> areas, OrderedTask task) {
+        if (areas.isEmpty()) {
+            return;
+        }
+
+        OrderedJob job = new OrderedJob(areas, task, this.virtualThreadExecutor != null ? this.virtualThreadExecutor : this.pool);
+        job.start();
+
+        this.await(name, job, areas.size(), "tasks");
+    }
+
+    /**
+     * Stops the threads of this scheduler. Jobs can no
+     * longer be run once the scheduler is closed.
+     */
+    @Override
+    public void close() {
+        if (this.virtualThreadExecutor != null) {
+            this.virtualThreadExecutor.shutdownNow();
+        } else {
+            this.pool.shutdownNow();
+        }
+    }
+
+    private void await(String name, Job job, long total, String unit) {
+        long lastCompleted = 0;
+        long lastProgressTime = System.currentTimeMillis();
+        while (true) {
+            try {
+                job.done.get(PROGRESS_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException ex) {
+                long completed = job.completed.get();
+                long now = System.currentTimeMillis();
+                if (completed != lastCompleted) {
+                    lastCompleted = completed;
+                    lastProgressTime = now;
+                    continue;
+                }
+
+                if (now - lastProgressTime >= this.stallTimeout) {
+                    this.cancel(name, job);
+                    throw new RuntimeException("Cancelled " + name + " after no progress was made for " + TimeUnit.MILLISECONDS.toSeconds(this.stallTimeout) + " seconds (" + completed + "/" + total + " " + unit + " complete)!");
+                }
+            } catch (ExecutionException ex) {
+                this.cancel(name, job);
+                throw new RuntimeException("Failed to run " + name + "!", ex.getCause());
+            } catch (InterruptedException ex) {
+                job.cancelled.set(true);
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while running " + name, ex);
+            }
+        }
+    }
+
+    private void cancel(String name, Job job) {
+        job.cancelled.set(true);
+
+        // Chunks and tasks stop at the next check, but any already running are left to finish
+        try {
+            if (!job.awaitIdle(this.stallTimeout)) {
+                System.err.println("Gave up waiting on running work of " + name + " after " + TimeUnit.MILLISECONDS.toSeconds(this.stallTimeout) + " seconds.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        // Virtual threads are only available on Java 21 and above, so
+        // look them up at runtime rather than depending on them directly
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    public interface ChunkTask {
+
+        void run(int chunkX, int chunkZ);
+    }
+
+    public interface OrderedTask {
+
+        void run(int index);
+    }
+
+    /**
+     * An area of chunks, with both corners inclusive.
+     *
+     * @param minChunkX the minimum chunk X position
+     * @param minChunkZ the minimum chunk Z position
+     * @param maxChunkX the maximum chunk X position
+     * @param maxChunkZ the maximum chunk Z position
+     */
+    public record ChunkArea(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+    }
+
+    private abstract static class Job {
+        protected final CompletableFuture<Void> done = new CompletableFuture<>();
+        protected final AtomicBoolean cancelled = new AtomicBoolean();
+        protected final AtomicLong completed = new AtomicLong();
+
+        // The amount of strips or tasks currently running
+        private final AtomicInteger running = new AtomicInteger();
+
+        /**
+         * Marks a strip or task as started. Must be called before
+         * checking if the job was cancelled, so that a cancelled job
+         * never sees itself idle while work is still starting.
+         */
+        protected void begin() {
+            this.running.incrementAndGet();
+        }
+
+        protected void end() {
+            if (this.running.decrementAndGet() == 0) {
+                synchronized (this.running) {
+                    this.running.notifyAll();
+                }
+            }
+        }
+
+        public boolean awaitIdle(long timeout) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeout;
+            synchronized (this.running) {
+                while (this.running.get() > 0) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+
+                    this.running.wait(remaining);
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static class GridJob extends Job {
+        private final int width;
+        private final ChunkTask task;
+
+        private final AtomicInteger remainingStrips;
+
+        public GridJob(int width, int length, ChunkTask task) {
+            this.width = width;
+            this.task = task;
+            this.remainingStrips = new AtomicInteger(length);
+        }
+
+        public void runStrip(int chunkZ) {
+            this.begin();
+            try {
+                for (int chunkX = 0; chunkX < this.width; chunkX++) {
+                    if (this.cancelled.get() || this.done.isDone()) {
+                        return;
+                    }
+
+                    this.task.run(chunkX, chunkZ);
+                    this.completed.incrementAndGet();
+                }
+            } catch (Throwable throwable) {
+                this.done.completeExceptionally(throwable);
+            } finally {
+                this.end();
+                if (this.remainingStrips.decrementAndGet() == 0) {
+                    this.done.complete(null);
+                }
+            }
+        }
+    }
+
+    private static class OrderedJob extends Job {
+        private static final int[] NO_SUCCESSORS = new int[0];
+
+        private final OrderedTask task;
+        private final ExecutorService executor;
+        private final int taskCount;
+
+        // The tasks that wait on each task, and how many tasks each task still waits on
+        private final int[][] successors;
+        private final AtomicIntegerArray remainingPredecessors;
+        private final int[] firstTasks;
+
+        public OrderedJob(List<ChunkArea> areas, OrderedTask task, ExecutorService executor) {
+            this.task = task;
+            this.executor = executor;
+            this.taskCount = areas.size();
+
+            int[] successorCounts = new int[this.taskCount];
+            int[][] successors = new int[this.taskCount][];
+            int[] predecessorCounts = new int[this.taskCount];
+
+            // Each task waits on the last task before it in every chunk it touches
+            Map<Long, Integer> lastTasks = new HashMap<>();
+            for (int index = 0; index < this.taskCount; index++) {
+                ChunkArea area = areas.get(index);
+                for (int chunkX = area.minChunkX(); chunkX <= area.maxChunkX(); chunkX++) {
+                    for (int chunkZ = area.minChunkZ(); chunkZ <= area.maxChunkZ(); chunkZ++) {
+                        Integer previous = lastTasks.put(((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL), index);
+                        if (previous == null) {
+                            continue;
+                        }
+
+                        // Only wait on each previous task once, even if they share many chunks
+                        int count = successorCounts[previous];
+                        if (count > 0 && successors[previous][count - 1] == index) {
+                            continue;
+                        }
+
+                        if (successors[previous] == null) {
+                            successors[previous] = new int[2];
+                        } else if (count == successors[previous].length) {
+                            successors[previous] = Arrays.copyOf(successors[previous], count * 2);
+                        }
+
+                        successors[previous][count] = index;
+                        successorCounts[previous]++;
+                        predecessorCounts[index]++;
+                    }
+                }
+            }
+
+            for (int index = 0; index < this.taskCount; index++) {
+                successors[index] = successors[index] == null ? NO_SUCCESSORS : Arrays.copyOf(successors[index], successorCounts[index]);
+            }
+
+            this.successors = successors;
+            this.remainingPredecessors = new AtomicIntegerArray(predecessorCounts);
+
+            // Found up front, since tasks may already be running while the first tasks are submitted
+            this.firstTasks = IntStream.range(0, this.taskCount)
+                    .filter(index -> predecessorCounts[index] == 0)
+                    .toArray();
+        }
+
+        public void start() {
+            for (int index : this.firstTasks) {
+                this.submit(index);
+            }
+        }
+
+        private void submit(int index) {
+            this.executor.execute(() -> this.run(index));
+        }
+
+        private void run(int index) {
+            this.begin();
+            try {
+                if (this.cancelled.get() || this.done.isDone()) {
+                    return;
+                }
+
+                this.task.run(index);
+            } catch (Throwable throwable) {
+                this.done.completeExceptionally(throwable);
+                return;
+            } finally {
+                this.end();
+            }
+
+            if (this.completed.incrementAndGet() == this.taskCount) {
+                this.done.complete(null);
+                return;
+            }
+
+            for (int successor : this.successors[index]) {
+                if (this.remainingPredecessors.decrementAndGet(successor) == 0) {
+                    this.submit(successor);
+                }
+            }
+        }
+    }
+
+    private static class StripAction extends RecursiveAction {
+        private final GridJob job;
+        private final int from;
+        private final int to;
+
+        public StripAction(GridJob job, int from, int to) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= 1) {
+                this.job.runStrip(this.from);
+                return;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new StripAction(this.job, this.from, middle), new StripAction(this.job, middle, this.to));
+        }
+    }
+}
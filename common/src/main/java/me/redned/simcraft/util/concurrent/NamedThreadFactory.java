@@ -0,0 +1,23 @@
+package me.redned.simcraft.util.concurrent;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NamedThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private final String name;
+
+    public NamedThreadFactory(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Thread newThread(final Runnable run) {
+        final Thread ret = new Thread(run);
+
+        ret.setName(this.name + " #" + this.threadCounter.getAndIncrement());
+        ret.setUncaughtExceptionHandler((thread, throwable) -> throwable.printStackTrace());
+
+        return ret;
+    }
+}
@@ -0,0 +1,228 @@
+package me.redned.simcraft.util.heightmap;
+
+import java.util.stream.IntStream;
+
+/**
+ * Smooths heightmap data using three successive box blurs,
+ * which together closely approximate a gaussian blur.
+ * <p>
+ * Each box blur keeps a running sum along the row or column
+ * being blurred, so every point takes the same amount of time
+ * no matter how large the blur is. Rows are blurred in parallel,
+ * and columns are blurred in parallel tiles of neighboring
+ * columns so that memory is still read a row at a time.
+ * <p>
+ * Like the iterative smoothing in {@link HeightMap}, the
+ * first and last point along each axis are left untouched.
+ * <p>
+ * Heightmaps made of raw SimCity heights can also be blurred a
+ * block at a time, without ever holding the whole blurred heightmap.
+ * Each block is blurred with a margin as wide as the blur can reach,
+ * so it ends up the same as if the whole heightmap was blurred.
+ */
+public final class BoxBlur {
+    private static final int BOX_COUNT = 3;
+    private static final int COLUMN_TILE_SIZE = 64;
+    private static final int BLOCK_SIZE = 64;
+    private static final double PASS_VARIANCE = 2.0D / 3.0D;
+
+    private BoxBlur() {
+    }
+
+    /**
+     * Blurs the given data by the same amount as the given amount
+     * of iterative smoothing passes.
+     * <p>
+     * Each iterative pass averages points in place, so every point is
+     * averaged with a neighbor that was already smoothed in the same
+     * pass. Measured against a single raised point, this spreads it
+     * with a variance of 2/3 along each axis per pass, so the passes
+     * add up to a gaussian blur with a variance of 2/3 of the amount
+     * of passes.
+     *
+     * @param data the data to blur, stored row by row
+     * @param width the amount of points in each row
+     * @param depth the amount of rows
+     * @param passes the amount of iterative passes to match
+     */
+    public static void blur(float[] data, int width, int depth, int passes) {
+        if (passes <= 0 || width == 0 || depth == 0) {
+            return;
+        }
+
+        float[] buffer = new float[data.length];
+        for (int size : getBoxSizes(passes * PASS_VARIANCE)) {
+            int radius = (size - 1) / 2;
+            if (radius == 0) {
+                continue;
+            }
+
+            blurRows(data, buffer, width, depth, radius, true, true, true);
+            blurColumns(buffer, data, width, depth, radius, true, true, true);
+        }
+    }
+
+    /**
+     * Blurs a heightmap of raw SimCity heights, with each raw height
+     * covering 16x16 points like in {@link HeightMap}, by the same
+     * amount as {@link #blur(float[], int, int, int)}. The heightmap is
+     * blurred in parallel blocks, which are handed to the consumer as
+     * they are finished.
+     *
+     * @param rawHeightMap the raw heightmap, indexed by [z][x]
+     * @param width the amount of points in each row
+     * @param depth the amount of rows
+     * @param passes the amount of iterative passes to match
+     * @param consumer the consumer to accept each blurred block
+     */
+    public static void blurBlocks(float[][] rawHeightMap, int width, int depth, int passes, BlockConsumer consumer) {
+        if (width == 0 || depth == 0) {
+            return;
+        }
+
+        int[] radii = passes <= 0 ? new int[0] : IntStream.of(getBoxSizes(passes * PASS_VARIANCE))
+                .map(size -> (size - 1) / 2)
+                .filter(radius -> radius > 0)
+                .toArray();
+
+        // Each box blur spreads changes at the edge of a window inward by its radius
+        int margin = IntStream.of(radii).sum();
+
+        int blocksX = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int blocksZ = (depth + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream.range(0, blocksX * blocksZ).parallel().forEach(block -> {
+            int minX = (block % blocksX) * BLOCK_SIZE;
+            int minZ = (block / blocksX) * BLOCK_SIZE;
+            int blockWidth = Math.min(BLOCK_SIZE, width - minX);
+            int blockDepth = Math.min(BLOCK_SIZE, depth - minZ);
+
+            int windowMinX = Math.max(0, minX - margin);
+            int windowMinZ = Math.max(0, minZ - margin);
+            int windowMaxX = Math.min(width, minX + blockWidth + margin);
+            int windowMaxZ = Math.min(depth, minZ + blockDepth + margin);
+            int windowWidth = windowMaxX - windowMinX;
+            int windowDepth = windowMaxZ - windowMinZ;
+
+            float[] window = new float[windowWidth * windowDepth];
+            for (int z = 0; z < windowDepth; z++) {
+                float[] rawRow = rawHeightMap[(windowMinZ + z) >> 4];
+                for (int x = 0; x < windowWidth; x++) {
+                    window[z * windowWidth + x] = rawRow[(windowMinX + x) >> 4];
+                }
+            }
+
+            // Only the edges of the window on the edge of the heightmap are treated as edges
+            float[] buffer = new float[window.length];
+            for (int radius : radii) {
+                blurRows(window, buffer, windowWidth, windowDepth, radius, windowMinX == 0, windowMaxX == width, false);
+                blurColumns(buffer, window, windowWidth, windowDepth, radius, windowMinZ == 0, windowMaxZ == depth, false);
+            }
+
+            consumer.accept(minX, minZ, blockWidth, blockDepth, window, (minZ - windowMinZ) * windowWidth + (minX - windowMinX), windowWidth);
+        });
+    }
+
+    private static void blurRows(float[] source, float[] target, int width, int depth, int radius, boolean keepFirst, boolean keepLast, boolean parallel) {
+        double scale = 1.0D / (radius * 2 + 1);
+
+        parallelize(IntStream.range(0, depth), parallel).forEach(z -> {
+            int row = z * width;
+
+            double sum = 0;
+            for (int i = -radius; i <= radius; i++) {
+                sum += source[row + clamp(i, width)];
+            }
+
+            for (int x = 0; x < width; x++) {
+                target[row + x] = (float) (sum * scale);
+                sum += source[row + clamp(x + radius + 1, width)] - source[row + clamp(x - radius, width)];
+            }
+
+            if (keepFirst) {
+                target[row] = source[row];
+            }
+
+            if (keepLast) {
+                target[row + width - 1] = source[row + width - 1];
+            }
+        });
+    }
+
+    private static void blurColumns(float[] source, float[] target, int width, int depth, int radius, boolean keepFirst, boolean keepLast, boolean parallel) {
+        HeightMapKernels kernels = HeightMapKernels.INSTANCE;
+        double scale = 1.0D / (radius * 2 + 1);
+
+        int tiles = (width + COLUMN_TILE_SIZE - 1) / COLUMN_TILE_SIZE;
+        parallelize(IntStream.range(0, tiles), parallel).forEach(tile -> {
+            int minX = tile * COLUMN_TILE_SIZE;
+            int tileWidth = Math.min(minX + COLUMN_TILE_SIZE, width) - minX;
+
+            double[] sums = new double[tileWidth];
+            for (int i = -radius; i <= radius; i++) {
+                kernels.accumulate(sums, source, clamp(i, depth) * width + minX, tileWidth);
+            }
+
+            for (int z = 0; z < depth; z++) {
+                int addRow = clamp(z + radius + 1, depth) * width;
+                int removeRow = clamp(z - radius, depth) * width;
+
+                kernels.slide(sums, source, addRow + minX, removeRow + minX, target, z * width + minX, tileWidth, scale);
+                if ((keepFirst && z == 0) || (keepLast && z == depth - 1)) {
+                    System.arraycopy(source, z * width + minX, target, z * width + minX, tileWidth);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the sizes of the boxes that, when applied one after
+     * another, best approximate a gaussian blur with the given
+     * variance. Sizes are always odd so each box is centered.
+     *
+     * @param variance the variance of the gaussian blur
+     * @return the box sizes
+     */
+    static int[] getBoxSizes(double variance) {
+        int lowerSize = (int) Math.floor(Math.sqrt(12 * variance / BOX_COUNT + 1));
+        if (lowerSize % 2 == 0) {
+            lowerSize--;
+        }
+
+        int upperSize = lowerSize + 2;
+
+        // How many of the boxes should use the lower size to get closest to the variance
+        double lowerCount = (12 * variance - BOX_COUNT * lowerSize * lowerSize - 4 * BOX_COUNT * lowerSize - 3 * BOX_COUNT) / (-4.0D * lowerSize - 4);
+        long roundedLowerCount = Math.round(lowerCount);
+
+        int[] sizes = new int[BOX_COUNT];
+        for (int i = 0; i < BOX_COUNT; i++) {
+            sizes[i] = i < roundedLowerCount ? lowerSize : upperSize;
+        }
+
+        return sizes;
+    }
+
+    private static int clamp(int index, int length) {
+        return index < 0 ? 0 : (index >= length ? length - 1 : index);
+    }
+
+    private static IntStream parallelize(IntStream stream, boolean parallel) {
+        return parallel ? stream.parallel() : stream;
+    }
+
+    public interface BlockConsumer {
+
+        /**
+         * Accepts a blurred block of a heightmap.
+         *
+         * @param minX the first point of the block on the x axis
+         * @param minZ the first point of the block on the z axis
+         * @param width the amount of points in the block on the x axis
+         * @param depth the amount of points in the block on the z axis
+         * @param heights the blurred heights, stored row by row
+         * @param offset the offset in the heights of the first point of the block
+         * @param stride the amount of heights between the start of each row
+         */
+        void accept(int minX, int minZ, int width, int depth, float[] heights, int offset, int stride);
+    }
+}
@@ -0,0 +1,230 @@
+package me.redned.simcraft.util.heightmap;
+
+/**
+ * Stores heights as 16-bit fixed point numbers, split into
+ * 16x16 tiles.
+ * <p>
+ * Heights are stored relative to a whole number at or below the
+ * lowest height, in steps of 1/16, giving a range of 4096 above it.
+ * Heights are rounded down to the step below them, so rounding a
+ * stored height down to any multiple of 1/16 (such as a whole block)
+ * gives the same result as rounding down the original height.
+ * <p>
+ * Tiles are stored in the smallest form that holds them exactly:
+ * <ul>
+ *     <li>Tiles where every point has the same height (i.e. flattened
+ *     lots) are stored as a single value.</li>
+ *     <li>Tiles whose heights span fewer than 256 steps, which covers
+ *     most smoothed terrain, are stored as a byte per point above the
+ *     lowest height in the tile.</li>
+ *     <li>Any other tile is stored as a short per point.</li>
+ * </ul>
+ * Tiles move to a larger form once a height is set that the current
+ * form can not hold.
+ * <p>
+ * Points in different tiles can be set from different threads.
+ */
+public class CompactHeightStorage implements HeightStorage {
+    private static final int TILE_SHIFT = 4;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int TILE_AREA = TILE_SIZE * TILE_SIZE;
+    private static final float SCALE = 16.0F;
+    private static final int MAX_VALUE = 0xFFFF;
+    private static final int MAX_BYTE_VALUE = 0xFF;
+
+    private final int width;
+    private final int depth;
+    private final int tilesX;
+    private final float offset;
+
+    // The value of each uniform tile, or the lowest value of each byte tile
+    private final short[] baseValues;
+    // The values of each point above the base value, or null if the tile is not a byte tile
+    private final byte[][] byteTiles;
+    // The values of each point, or null if the tile is not a short tile
+    private final short[][] shortTiles;
+
+    public CompactHeightStorage(float[] heights, int width, int depth) {
+        this(width, depth, getOffset(heights));
+
+        if (heights.length != width * depth) {
+            throw new IllegalArgumentException("Expected " + (width * depth) + " heights but got " + heights.length + "!");
+        }
+
+        this.writeBlock(0, 0, width, depth, heights, 0, width);
+    }
+
+    /**
+     * Creates an empty storage, with every height set to the offset.
+     *
+     * @param width the amount of points on the x axis
+     * @param depth the amount of points on the z axis
+     * @param offset the height stored heights are relative to, which must be a whole number at or below every height
+     */
+    public CompactHeightStorage(int width, int depth, float offset) {
+        this.width = width;
+        this.depth = depth;
+        this.tilesX = (width + TILE_MASK) >> TILE_SHIFT;
+        this.offset = offset;
+
+        int tiles = this.tilesX * ((depth + TILE_MASK) >> TILE_SHIFT);
+        this.baseValues = new short[tiles];
+        this.byteTiles = new byte[tiles][];
+        this.shortTiles = new short[tiles][];
+    }
+
+    /**
+     * Writes a block of heights, made up of whole tiles or
+     * reaching the edge of the storage, one tile at a time.
+     *
+     * @param minX the first point of the block on the x axis, a multiple of 16
+     * @param minZ the first point of the block on the z axis, a multiple of 16
+     * @param width the amount of points in the block on the x axis
+     * @param depth the amount of points in the block on the z axis
+     * @param heights the heights to write, stored row by row
+     * @param offset the offset in the heights of the first point
+     * @param stride the amount of heights between the start of each row
+     */
+    public void writeBlock(int minX, int minZ, int width, int depth, float[] heights, int offset, int stride) {
+        short[] tile = new short[TILE_AREA];
+        for (int tileZ = 0; tileZ < depth; tileZ += TILE_SIZE) {
+            for (int tileX = 0; tileX < width; tileX += TILE_SIZE) {
+                int min = MAX_VALUE;
+                int max = 0;
+                for (int z = 0; z < TILE_SIZE; z++) {
+                    for (int x = 0; x < TILE_SIZE; x++) {
+                        // Points past the edge of the heightmap repeat the last point
+                        int pointX = Math.min(tileX + x, width - 1);
+                        int pointZ = Math.min(tileZ + z, depth - 1);
+
+                        int value = this.encode(heights[offset + pointZ * stride + pointX]);
+                        tile[(z << TILE_SHIFT) | x] = (short) value;
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                }
+
+                this.setTile(((minZ + tileZ) >> TILE_SHIFT) * this.tilesX + ((minX + tileX) >> TILE_SHIFT), tile, min, max);
+            }
+        }
+    }
+
+    @Override
+    public float get(int x, int z) {
+        int index = (z >> TILE_SHIFT) * this.tilesX + (x >> TILE_SHIFT);
+        int point = ((z & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+
+        short[] shortTile = this.shortTiles[index];
+        if (shortTile != null) {
+            return this.decode(shortTile[point] & MAX_VALUE);
+        }
+
+        int base = this.baseValues[index] & MAX_VALUE;
+        byte[] byteTile = this.byteTiles[index];
+        if (byteTile != null) {
+            return this.decode(base + (byteTile[point] & MAX_BYTE_VALUE));
+        }
+
+        return this.decode(base);
+    }
+
+    @Override
+    public void set(int x, int z, float height) {
+        int index = (z >> TILE_SHIFT) * this.tilesX + (x >> TILE_SHIFT);
+        int point = ((z & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+        int value = this.encode(height);
+
+        short[] shortTile = this.shortTiles[index];
+        if (shortTile != null) {
+            shortTile[point] = (short) value;
+            return;
+        }
+
+        int base = this.baseValues[index] & MAX_VALUE;
+        byte[] byteTile = this.byteTiles[index];
+        if (byteTile == null && value == base) {
+            return;
+        }
+
+        if (byteTile != null && value >= base && value - base <= MAX_BYTE_VALUE) {
+            byteTile[point] = (byte) (value - base);
+            return;
+        }
+
+        // The current form can not hold the value, so store the tile again in a form that can
+        short[] tile = new short[TILE_AREA];
+        int min = value;
+        int max = value;
+        for (int i = 0; i < TILE_AREA; i++) {
+            int tileValue = i == point ? value : base + (byteTile == null ? 0 : byteTile[i] & MAX_BYTE_VALUE);
+            tile[i] = (short) tileValue;
+            min = Math.min(min, tileValue);
+            max = Math.max(max, tileValue);
+        }
+
+        this.setTile(index, tile, min, max);
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getDepth() {
+        return this.depth;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        long footprint = this.baseValues.length * 2L + this.byteTiles.length * 8L + this.shortTiles.length * 8L;
+        for (int i = 0; i < this.baseValues.length; i++) {
+            if (this.byteTiles[i] != null) {
+                footprint += 16 + TILE_AREA;
+            } else if (this.shortTiles[i] != null) {
+                footprint += 16 + TILE_AREA * 2L;
+            }
+        }
+
+        return footprint;
+    }
+
+    private void setTile(int index, short[] tile, int min, int max) {
+        if (min == max) {
+            this.baseValues[index] = (short) min;
+            this.byteTiles[index] = null;
+            this.shortTiles[index] = null;
+        } else if (max - min <= MAX_BYTE_VALUE) {
+            byte[] byteTile = new byte[TILE_AREA];
+            for (int i = 0; i < TILE_AREA; i++) {
+                byteTile[i] = (byte) ((tile[i] & MAX_VALUE) - min);
+            }
+
+            this.baseValues[index] = (short) min;
+            this.byteTiles[index] = byteTile;
+            this.shortTiles[index] = null;
+        } else {
+            this.shortTiles[index] = tile.clone();
+            this.byteTiles[index] = null;
+        }
+    }
+
+    private int encode(float height) {
+        int value = (int) Math.floor((height - this.offset) * SCALE);
+        return Math.max(0, Math.min(MAX_VALUE, value));
+    }
+
+    private float decode(int value) {
+        return value / SCALE + this.offset;
+    }
+
+    private static float getOffset(float[] heights) {
+        float min = Float.POSITIVE_INFINITY;
+        for (float height : heights) {
+            min = Math.min(min, height);
+        }
+
+        return heights.length == 0 ? 0 : (float) Math.floor(min);
+    }
+}
@@ -0,0 +1,45 @@
+package me.redned.simcraft.util.heightmap;
+
+/**
+ * Stores heights as floats in a single array, row by row.
+ */
+public class FloatHeightStorage implements HeightStorage {
+    private final float[] heights;
+    private final int width;
+    private final int depth;
+
+    public FloatHeightStorage(float[] heights, int width, int depth) {
+        if (heights.length != width * depth) {
+            throw new IllegalArgumentException("Expected " + (width * depth) + " heights but got " + heights.length + "!");
+        }
+
+        this.heights = heights;
+        this.width = width;
+        this.depth = depth;
+    }
+
+    @Override
+    public float get(int x, int z) {
+        return this.heights[z * this.width + x];
+    }
+
+    @Override
+    public void set(int x, int z, float height) {
+        this.heights[z * this.width + x] = height;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getDepth() {
+        return this.depth;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return this.heights.length * 4L;
+    }
+}
@@ -2,11 +2,17 @@ package me.redned.simcraft.util.heightmap;
 
 import org.cloudburstmc.math.GenericMath;
 
-/** Heightmap (heightfield) implementation with adjustable height/width scaling and iterative smoothing
+import java.util.Arrays;
+
+/** Heightmap (heightfield) implementation with adjustable height/width scaling and iterative or box blur smoothing
  * @author jrenner */
 public class HeightMap {
-	/** 2d array of heights for each data point */
-	private final float[][] heights;
+	/** heights for each data point */
+	private final HeightStorage heights;
+	/** number of data points in each row of the heights */
+	private final int stride;
+	/** number of rows in the heights */
+	private final int rows;
 	/** vertical scaling factor for height */
 	private final float heightScale;
 	/** scaling for width on the x-z plane (distance between each data point) */
@@ -35,65 +41,146 @@ public class HeightMap {
 		this(heightMap, width, height, 1.0F, 1.0F, smoothingPasses);
 	}
 
+	public HeightMap(float[][] heightMap, int width, int height, int smoothingPasses, SmoothingMode smoothingMode) {
+		this(heightMap, width, height, 1.0F, 1.0F, smoothingPasses, smoothingMode);
+	}
+
 	public HeightMap(float[][] heightMap, int width, int height, float heightScale, float widthScale, int smoothingPasses) {
+		this(heightMap, width, height, heightScale, widthScale, smoothingPasses, SmoothingMode.ITERATIVE);
+	}
+
+	public HeightMap(float[][] heightMap, int width, int height, int smoothingPasses, SmoothingMode smoothingMode, HeightStorage.Type storageType) {
+		this(heightMap, width, height, 1.0F, 1.0F, smoothingPasses, smoothingMode, storageType);
+	}
+
+	public HeightMap(float[][] heightMap, int width, int height, float heightScale, float widthScale, int smoothingPasses, SmoothingMode smoothingMode) {
+		this(heightMap, width, height, heightScale, widthScale, smoothingPasses, smoothingMode, HeightStorage.Type.FLOAT);
+	}
+
+	public HeightMap(float[][] heightMap, int width, int height, float heightScale, float widthScale, int smoothingPasses, SmoothingMode smoothingMode, HeightStorage.Type storageType) {
 		this.heightScale = heightScale;
 		this.widthScale = widthScale;
 
-		this.heights = new float[height << 4][width << 4];
+		this.stride = width << 4;
+		this.rows = height << 4;
+		this.width = this.stride;
+		this.depth = this.rows;
+		this.numPoints = this.stride * this.rows;
+
+		// Box blurred compact heights are blurred a block at a time, so the full heightmap is never held as floats
+		if (smoothingMode == SmoothingMode.BOX_BLUR && storageType == HeightStorage.Type.COMPACT) {
+			this.heights = blurCompact(heightMap, width, height, smoothingPasses);
+			setCenter();
+			return;
+		}
 
-		for (int z = 0; z < this.heights.length; z++) {
-			for (int x = 0; x < this.heights[z].length; x++) {
-				this.heights[z][x] = heightMap[z >> 4][x >> 4];
+		// Iterative smoothing works on the full heightmap as floats, the result is then moved into the chosen storage
+		float[] heights = new float[this.numPoints];
+		for (int z = 0; z < this.rows; z++) {
+			int row = z * this.stride;
+			for (int x = 0; x < this.stride; x += 16) {
+				Arrays.fill(heights, row + x, row + x + 16, heightMap[z >> 4][x >> 4]);
 			}
 		}
 		
-		smoothVertexPositions(smoothingPasses);
-		updateDimensions();
+		if (smoothingMode == SmoothingMode.ITERATIVE) {
+			smoothVertexPositions(heights, smoothingPasses);
+		} else {
+			BoxBlur.blur(heights, stride, rows, smoothingPasses);
+		}
+		updateDimensions(heights);
+
+		this.heights = storageType.create(heights, stride, rows);
+	}
+
+	private CompactHeightStorage blurCompact(float[][] heightMap, int width, int height, int passes) {
+		// Blurring never goes below the lowest raw height
+		float rawMin = Float.POSITIVE_INFINITY;
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				rawMin = Math.min(rawMin, heightMap[z][x]);
+			}
+		}
+
+		CompactHeightStorage storage = new CompactHeightStorage(stride, rows, numPoints == 0 ? 0 : (float) Math.floor(rawMin));
+		float[] minMax = { Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY };
+		BoxBlur.blurBlocks(heightMap, stride, rows, passes, (minX, minZ, blockWidth, blockDepth, values, offset, blockStride) -> {
+			float blockMin = Float.POSITIVE_INFINITY;
+			float blockMax = Float.NEGATIVE_INFINITY;
+			for (int z = 0; z < blockDepth; z++) {
+				int row = offset + z * blockStride;
+				for (int x = 0; x < blockWidth; x++) {
+					blockMin = Math.min(blockMin, values[row + x]);
+					blockMax = Math.max(blockMax, values[row + x]);
+				}
+			}
+
+			storage.writeBlock(minX, minZ, blockWidth, blockDepth, values, offset, blockStride);
+			synchronized (minMax) {
+				minMax[0] = Math.min(minMax[0], blockMin);
+				minMax[1] = Math.max(minMax[1], blockMax);
+			}
+		});
+
+		min = minMax[0];
+		max = minMax[1];
+		return storage;
 	}
 
-	private void setMinMaxHeights() {
-		min = Float.MAX_VALUE;
-		max = Float.MIN_VALUE;
-		for (int z = 0; z < heights.length; z++) {
-			for (int x = 0; x < heights[0].length; x++) {
-				float y = heights[z][x];
+	/** Create a heightmap over existing heights, such as a view of a {@link HeightMapMosaic}. The heights are used as is, without any smoothing */
+	public HeightMap(HeightStorage heights) {
+		this.heightScale = 1.0F;
+		this.widthScale = 1.0F;
+
+		this.heights = heights;
+		this.stride = heights.getWidth();
+		this.rows = heights.getDepth();
+		this.width = this.stride;
+		this.depth = this.rows;
+		this.numPoints = this.stride * this.rows;
+
+		min = Float.POSITIVE_INFINITY;
+		max = Float.NEGATIVE_INFINITY;
+		for (int z = 0; z < rows; z++) {
+			for (int x = 0; x < stride; x++) {
+				float y = heights.get(x, z);
 				if (y < min) min = y;
 				if (y > max) max = y;
 			}
 		}
+		setCenter();
+	}
+
+	private void setMinMaxHeights(float[] heights) {
+		float[] minMax = new float[2];
+		HeightMapKernels.INSTANCE.minMax(heights, minMax);
+		min = minMax[0];
+		max = minMax[1];
 	}
 
-	private void updateDimensions() {
-		setMinMaxHeights();
+	private void updateDimensions(float[] heights) {
+		setMinMaxHeights(heights);
 		setCenter();
 	}
 
 	/** Create smoother terrain using averaging of height values
 	 * @param passes number of smoothing passes (higher = smoother) */
-	private void smoothVertexPositions(int passes) {
+	private void smoothVertexPositions(float[] heights, int passes) {
 		for (int i = 0; i < passes; i++) {
 			// smooth along x
-			for (int z = 0; z < heights.length; z++) {
-				for (int x = 1; x < heights[z].length - 1; x += 1) {
-					float prev = heights[z][x - 1];
-					float y = heights[z][x];
-					float next = heights[z][x + 1];
-					float yAvg = (next + prev) / 2f;
-					heights[z][x] = (y + yAvg) / 2f;
-				}
-			}
-			// smooth along z
-			for (int x = 0; x < heights[0].length; x++) {
-				for (int z = 1; z < heights.length - 1; z += 1) {
-					float prev = heights[z - 1][x];
-					float y = heights[z][x];
-					float next = heights[z + 1][x];
+			for (int z = 0; z < rows; z++) {
+				int row = z * stride;
+				for (int x = 1; x < stride - 1; x += 1) {
+					float prev = heights[row + x - 1];
+					float y = heights[row + x];
+					float next = heights[row + x + 1];
 					float yAvg = (next + prev) / 2f;
-					heights[z][x] = (y + yAvg) / 2f;
+					heights[row + x] = (y + yAvg) / 2f;
 				}
 			}
+			// smooth along z (columns are independent, so this can run a row at a time)
+			HeightMapKernels.INSTANCE.smoothColumns(heights, stride, rows);
 		}
-		updateDimensions();
 	}
 
 	private void setCenter() {
@@ -102,10 +189,21 @@ public class HeightMap {
 		this.centerZ = GenericMath.floor(getDepthWorld() / 2);
 	}
 
-	public float[][] getData() {
+	/** @return the storage holding the heights of each data point */
+	public HeightStorage getData() {
 		return heights;
 	}
 
+	/** get the raw height of the data point at x,z, without any scaling or bounds clamping */
+	public float get(int x, int z) {
+		return heights.get(x, z);
+	}
+
+	/** set the raw height of the data point at x,z */
+	public void set(int x, int z, float height) {
+		heights.set(x, z, height);
+	}
+
 	public int getNumberOfPoints() {
 		return numPoints;
 	}
@@ -128,8 +226,8 @@ public class HeightMap {
 		int x = (int) Math.floor(xf);
 		int z = (int) Math.floor(zf);
 		if (x < 0 || z < 0) return false;
-		if (z > heights.length - 1) return false;
-		if (x > heights[z].length - 1) return false;
+		if (z > rows - 1) return false;
+		if (x > stride - 1) return false;
 		return true;
 	}
 
@@ -140,13 +238,13 @@ public class HeightMap {
 		int z = worldCoordToIndex(zf);
 		if (x < 0) x = 0;
 		if (z < 0) z = 0;
-		if (z >= heights.length) {
-			z = heights.length - 1;
+		if (z >= rows) {
+			z = rows - 1;
 		}
-		if (x >= heights[z].length) {
-			x = heights[z].length - 1;
+		if (x >= stride) {
+			x = stride - 1;
 		}
-		return heights[z][x] * heightScale;
+		return heights.get(x, z) * heightScale;
 	}
 
 	/**
@@ -0,0 +1,74 @@
+package me.redned.simcraft.util.heightmap;
+
+/**
+ * Bulk operations over flat heightmap data.
+ * <p>
+ * A version using the Vector API is used when the
+ * {@code jdk.incubator.vector} module is enabled (i.e. by
+ * launching with {@code --add-modules jdk.incubator.vector}),
+ * otherwise a plain scalar version is used.
+ */
+public interface HeightMapKernels {
+    HeightMapKernels INSTANCE = create();
+
+    /**
+     * Finds the minimum and maximum value in the given data.
+     *
+     * @param data the data to search
+     * @param result an array to store the minimum and maximum value in, in that order
+     */
+    void minMax(float[] data, float[] result);
+
+    /**
+     * Runs a single iterative smoothing pass along the Z axis of
+     * the given data, leaving the first and last row untouched.
+     * <p>
+     * Rows are smoothed in place from first to last, so each point
+     * is averaged with the already smoothed point before it.
+     *
+     * @param data the data to smooth, stored row by row
+     * @param width the amount of points in each row
+     * @param depth the amount of rows
+     */
+    void smoothColumns(float[] data, int width, int depth);
+
+    /**
+     * Adds a run of values to a set of running sums.
+     *
+     * @param sums the running sums
+     * @param data the data to add from
+     * @param offset the offset in the data of the first value
+     * @param length the amount of values to add
+     */
+    void accumulate(double[] sums, float[] data, int offset, int length);
+
+    /**
+     * Writes the average of each running sum to the target, then
+     * slides each sum along by adding one run of values and removing
+     * another.
+     *
+     * @param sums the running sums
+     * @param data the data the sums are taken from
+     * @param addOffset the offset in the data of the values to add
+     * @param removeOffset the offset in the data of the values to remove
+     * @param target the array to write the averages to
+     * @param targetOffset the offset in the target to write the first average to
+     * @param length the amount of sums
+     * @param scale the scale to average each sum by
+     */
+    void slide(double[] sums, float[] data, int addOffset, int removeOffset, float[] target, int targetOffset, int length, double scale);
+
+    private static HeightMapKernels create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (HeightMapKernels) Class.forName("me.redned.simcraft.util.heightmap.VectorHeightMapKernels")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                System.err.println("Failed to load vectorized heightmap kernels, falling back to scalar kernels: " + ex);
+            }
+        }
+
+        return new ScalarHeightMapKernels();
+    }
+}
@@ -0,0 +1,242 @@
+package me.redned.simcraft.util.heightmap;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A single heightmap spanning multiple heightmaps placed next to
+ * one another, such as every city in a region.
+ * <p>
+ * Each heightmap is placed into one memory mapped grid and the grid
+ * is smoothed as a whole, so heights blend across the borders between
+ * heightmaps rather than each being smoothed on its own. Points not
+ * covered by any heightmap are ignored while smoothing, by blurring a
+ * weight for each point alongside the heights and dividing by it.
+ * <p>
+ * Each placed heightmap can then read its part of the grid through
+ * a {@link HeightStorage} view. Views can not be used once the
+ * mosaic has been closed, so anything that outlives the mosaic
+ * should copy its view into storage of its own.
+ */
+public class HeightMapMosaic implements AutoCloseable {
+    private static final int COLUMN_TILE_SIZE = 64;
+    private static final double PASS_VARIANCE = 2.0D / 3.0D;
+
+    private final MappedFloatGrid heights;
+    private final MappedFloatGrid weights;
+
+    public HeightMapMosaic(int width, int depth) {
+        try {
+            this.heights = new MappedFloatGrid(width, depth);
+            this.weights = new MappedFloatGrid(width, depth);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to create heightmap mosaic!", ex);
+        }
+    }
+
+    /**
+     * Places a raw SimCity heightmap into the mosaic, with each raw
+     * height covering 16x16 points like in {@link HeightMap}.
+     * <p>
+     * The grid starts out empty with a weight of zero, so placed
+     * heights are already weighted by their weight of one.
+     *
+     * @param heightMap the raw heightmap, indexed by [z][x]
+     * @param offsetX the point to place the heightmap at on the x axis
+     * @param offsetZ the point to place the heightmap at on the z axis
+     * @param width the width of the heightmap, in raw heights
+     * @param depth the depth of the heightmap, in raw heights
+     */
+    public void place(float[][] heightMap, int offsetX, int offsetZ, int width, int depth) {
+        float[] row = new float[width << 4];
+        float[] weight = new float[width << 4];
+        Arrays.fill(weight, 1.0F);
+
+        for (int z = 0; z < depth << 4; z++) {
+            for (int x = 0; x < width << 4; x++) {
+                row[x] = heightMap[z >> 4][x >> 4];
+            }
+
+            this.heights.writeRow(offsetZ + z, offsetX, row, 0, row.length);
+            this.weights.writeRow(offsetZ + z, offsetX, weight, 0, weight.length);
+        }
+    }
+
+    /**
+     * Smooths the whole mosaic by the same amount as the given
+     * amount of iterative smoothing passes, using the same box
+     * blurs as {@link BoxBlur}.
+     *
+     * @param passes the amount of iterative passes to match
+     */
+    public void smooth(int passes) {
+        if (passes <= 0) {
+            return;
+        }
+
+        for (int size : BoxBlur.getBoxSizes(passes * PASS_VARIANCE)) {
+            int radius = (size - 1) / 2;
+            if (radius == 0) {
+                continue;
+            }
+
+            blurRows(this.heights, this.weights, radius);
+            blurColumns(this.heights, radius);
+            blurColumns(this.weights, radius);
+        }
+
+        this.normalize();
+    }
+
+    /**
+     * Gets a view of part of the mosaic.
+     *
+     * @param offsetX the first point of the view on the x axis
+     * @param offsetZ the first point of the view on the z axis
+     * @param width the amount of points on the x axis
+     * @param depth the amount of points on the z axis
+     * @return a view of part of the mosaic
+     */
+    public HeightStorage getView(int offsetX, int offsetZ, int width, int depth) {
+        return new View(offsetX, offsetZ, width, depth);
+    }
+
+    /**
+     * Releases the grids holding the mosaic.
+     */
+    @Override
+    public void close() {
+        this.heights.close();
+        this.weights.close();
+    }
+
+    private static void blurRows(MappedFloatGrid heights, MappedFloatGrid weights, int radius) {
+        int width = heights.getWidth();
+        double scale = 1.0D / (radius * 2 + 1);
+
+        IntStream.range(0, heights.getDepth()).parallel().forEach(z -> {
+            float[] heightRow = new float[width];
+            float[] weightRow = new float[width];
+            heights.readRow(z, 0, heightRow, 0, width);
+            weights.readRow(z, 0, weightRow, 0, width);
+
+            float[] blurred = new float[width];
+            blurRow(heightRow, blurred, radius, scale);
+            heights.writeRow(z, 0, blurred, 0, width);
+
+            blurRow(weightRow, blurred, radius, scale);
+            weights.writeRow(z, 0, blurred, 0, width);
+        });
+    }
+
+    private static void blurRow(float[] source, float[] target, int radius, double scale) {
+        int width = source.length;
+
+        // Points past the edge count as empty, matching the weights
+        double sum = 0;
+        for (int i = 0; i <= radius && i < width; i++) {
+            sum += source[i];
+        }
+
+        for (int x = 0; x < width; x++) {
+            target[x] = (float) (sum * scale);
+
+            int add = x + radius + 1;
+            int remove = x - radius;
+            sum += (add < width ? source[add] : 0) - (remove >= 0 ? source[remove] : 0);
+        }
+    }
+
+    private static void blurColumns(MappedFloatGrid grid, int radius) {
+        HeightMapKernels kernels = HeightMapKernels.INSTANCE;
+        int width = grid.getWidth();
+        int depth = grid.getDepth();
+        double scale = 1.0D / (radius * 2 + 1);
+
+        // Each tile of columns is read into memory, so the grid can be blurred in place
+        int tiles = (width + COLUMN_TILE_SIZE - 1) / COLUMN_TILE_SIZE;
+        IntStream.range(0, tiles).parallel().forEach(tile -> {
+            int minX = tile * COLUMN_TILE_SIZE;
+            int tileWidth = Math.min(minX + COLUMN_TILE_SIZE, width) - minX;
+
+            // Padded with empty rows above and below, so edges need no special handling
+            int paddedDepth = depth + radius * 2 + 1;
+            float[] source = new float[paddedDepth * tileWidth];
+            for (int z = 0; z < depth; z++) {
+                grid.readRow(z, minX, source, (z + radius) * tileWidth, tileWidth);
+            }
+
+            double[] sums = new double[tileWidth];
+            for (int i = 0; i <= radius * 2; i++) {
+                kernels.accumulate(sums, source, i * tileWidth, tileWidth);
+            }
+
+            float[] target = new float[depth * tileWidth];
+            for (int z = 0; z < depth; z++) {
+                kernels.slide(sums, source, (z + radius * 2 + 1) * tileWidth, z * tileWidth, target, z * tileWidth, tileWidth, scale);
+            }
+
+            for (int z = 0; z < depth; z++) {
+                grid.writeRow(z, minX, target, z * tileWidth, tileWidth);
+            }
+        });
+    }
+
+    private void normalize() {
+        int width = this.heights.getWidth();
+
+        IntStream.range(0, this.heights.getDepth()).parallel().forEach(z -> {
+            float[] heightRow = new float[width];
+            float[] weightRow = new float[width];
+            this.heights.readRow(z, 0, heightRow, 0, width);
+            this.weights.readRow(z, 0, weightRow, 0, width);
+
+            for (int x = 0; x < width; x++) {
+                heightRow[x] = weightRow[x] > 0 ? heightRow[x] / weightRow[x] : 0;
+            }
+
+            this.heights.writeRow(z, 0, heightRow, 0, width);
+        });
+    }
+
+    private class View implements HeightStorage {
+        private final int offsetX;
+        private final int offsetZ;
+        private final int width;
+        private final int depth;
+
+        public View(int offsetX, int offsetZ, int width, int depth) {
+            this.offsetX = offsetX;
+            this.offsetZ = offsetZ;
+            this.width = width;
+            this.depth = depth;
+        }
+
+        @Override
+        public float get(int x, int z) {
+            return HeightMapMosaic.this.heights.get(this.offsetX + x, this.offsetZ + z);
+        }
+
+        @Override
+        public void set(int x, int z, float height) {
+            HeightMapMosaic.this.heights.set(this.offsetX + x, this.offsetZ + z, height);
+        }
+
+        @Override
+        public int getWidth() {
+            return this.width;
+        }
+
+        @Override
+        public int getDepth() {
+            return this.depth;
+        }
+
+        @Override
+        public long getMemoryFootprint() {
+            // The heights are memory mapped rather than on the heap
+            return 0;
+        }
+    }
+}
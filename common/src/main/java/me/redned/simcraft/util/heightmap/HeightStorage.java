@@ -0,0 +1,110 @@
+package me.redned.simcraft.util.heightmap;
+
+/**
+ * Storage for the heights of each point in a {@link HeightMap}.
+ */
+public interface HeightStorage {
+
+    /**
+     * Gets the height at the given point.
+     *
+     * @param x the x position of the point
+     * @param z the z position of the point
+     * @return the height at the given point
+     */
+    float get(int x, int z);
+
+    /**
+     * Sets the height at the given point.
+     *
+     * @param x the x position of the point
+     * @param z the z position of the point
+     * @param height the height to set
+     */
+    void set(int x, int z, float height);
+
+    /**
+     * Gets the amount of points on the x axis.
+     *
+     * @return the amount of points on the x axis
+     */
+    int getWidth();
+
+    /**
+     * Gets the amount of points on the z axis.
+     *
+     * @return the amount of points on the z axis
+     */
+    int getDepth();
+
+    /**
+     * Gets the approximate amount of heap memory, in bytes,
+     * used by this storage.
+     *
+     * @return the approximate memory footprint of this storage
+     */
+    long getMemoryFootprint();
+
+    enum Type {
+        /**
+         * Stores every height as a float.
+         */
+        FLOAT,
+        /**
+         * Stores heights as 16-bit fixed point numbers in tiles,
+         * with tiles of a single height stored as one value.
+         */
+        COMPACT;
+
+        public HeightStorage create(float[] heights, int width, int depth) {
+            return switch (this) {
+                case FLOAT -> new FloatHeightStorage(heights, width, depth);
+                case COMPACT -> new CompactHeightStorage(heights, width, depth);
+            };
+        }
+
+        /**
+         * Copies existing heights into a new storage of this type.
+         *
+         * @param heights the heights to copy
+         * @return a new storage holding the same heights
+         */
+        public HeightStorage copy(HeightStorage heights) {
+            int width = heights.getWidth();
+            int depth = heights.getDepth();
+            if (this == FLOAT) {
+                float[] values = new float[width * depth];
+                for (int z = 0; z < depth; z++) {
+                    for (int x = 0; x < width; x++) {
+                        values[z * width + x] = heights.get(x, z);
+                    }
+                }
+
+                return new FloatHeightStorage(values, width, depth);
+            }
+
+            float min = Float.POSITIVE_INFINITY;
+            for (int z = 0; z < depth; z++) {
+                for (int x = 0; x < width; x++) {
+                    min = Math.min(min, heights.get(x, z));
+                }
+            }
+
+            // Copied a row of tiles at a time, so the heights are never all held as floats
+            CompactHeightStorage storage = new CompactHeightStorage(width, depth, width * depth == 0 ? 0 : (float) Math.floor(min));
+            float[] values = new float[width * 16];
+            for (int minZ = 0; minZ < depth; minZ += 16) {
+                int rows = Math.min(16, depth - minZ);
+                for (int z = 0; z < rows; z++) {
+                    for (int x = 0; x < width; x++) {
+                        values[z * width + x] = heights.get(x, minZ + z);
+                    }
+                }
+
+                storage.writeBlock(0, minZ, width, rows, values, 0, width);
+            }
+
+            return storage;
+        }
+    }
+}
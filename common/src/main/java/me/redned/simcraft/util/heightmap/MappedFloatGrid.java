@@ -0,0 +1,110 @@
+package me.redned.simcraft.util.heightmap;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A grid of floats backed by a memory mapped temporary file,
+ * allowing grids larger than would comfortably fit on the heap.
+ * <p>
+ * Values are stored row by row. As a single mapping is limited
+ * to 2GB, the grid is mapped in bands of whole rows. Individual
+ * values can be read and written from any thread, as long as the
+ * same value is not written from multiple threads at once.
+ * <p>
+ * Java can not unmap a file on request, so once the grid is
+ * closed the mappings, and the temporary file behind them, are
+ * released when the garbage collector next collects them.
+ */
+public class MappedFloatGrid implements AutoCloseable {
+    private static final long MAX_BAND_SIZE = Integer.MAX_VALUE;
+
+    private final int width;
+    private final int depth;
+    private final int rowsPerBand;
+
+    private FloatBuffer[] bands;
+
+    public MappedFloatGrid(int width, int depth) throws IOException {
+        this.width = width;
+        this.depth = depth;
+        this.rowsPerBand = (int) Math.max(1, Math.min(depth, MAX_BAND_SIZE / (width * 4L)));
+
+        int bandCount = (depth + this.rowsPerBand - 1) / this.rowsPerBand;
+        this.bands = new FloatBuffer[bandCount];
+
+        Path path = Files.createTempFile("simcraft-grid", ".bin");
+
+        // The mappings stay valid once the channel is closed, and the file is removed with it
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+            for (int band = 0; band < bandCount; band++) {
+                int rows = Math.min(this.rowsPerBand, depth - band * this.rowsPerBand);
+                long position = (long) band * this.rowsPerBand * width * 4L;
+
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) rows * width * 4L);
+                this.bands[band] = buffer.order(ByteOrder.nativeOrder()).asFloatBuffer();
+            }
+        }
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public float get(int x, int z) {
+        return this.bands[z / this.rowsPerBand].get(this.getIndex(x, z));
+    }
+
+    public void set(int x, int z, float value) {
+        this.bands[z / this.rowsPerBand].put(this.getIndex(x, z), value);
+    }
+
+    /**
+     * Reads part of a row into the given array.
+     *
+     * @param z the row to read
+     * @param x the first value in the row to read
+     * @param target the array to read into
+     * @param offset the offset in the array to read into
+     * @param length the amount of values to read
+     */
+    public void readRow(int z, int x, float[] target, int offset, int length) {
+        this.bands[z / this.rowsPerBand].get(this.getIndex(x, z), target, offset, length);
+    }
+
+    /**
+     * Writes part of a row from the given array.
+     *
+     * @param z the row to write
+     * @param x the first value in the row to write
+     * @param source the array to write from
+     * @param offset the offset in the array to write from
+     * @param length the amount of values to write
+     */
+    public void writeRow(int z, int x, float[] source, int offset, int length) {
+        this.bands[z / this.rowsPerBand].put(this.getIndex(x, z), source, offset, length);
+    }
+
+    /**
+     * Drops every mapping of the grid, after which the
+     * grid can no longer be read or written.
+     */
+    @Override
+    public void close() {
+        this.bands = null;
+    }
+
+    private int getIndex(int x, int z) {
+        return (z % this.rowsPerBand) * this.width + x;
+    }
+}
@@ -0,0 +1,46 @@
+package me.redned.simcraft.util.heightmap;
+
+class ScalarHeightMapKernels implements HeightMapKernels {
+
+    @Override
+    public void minMax(float[] data, float[] result) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : data) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        result[0] = min;
+        result[1] = max;
+    }
+
+    @Override
+    public void smoothColumns(float[] data, int width, int depth) {
+        for (int z = 1; z < depth - 1; z++) {
+            int row = z * width;
+            for (int x = 0; x < width; x++) {
+                float prev = data[row - width + x];
+                float y = data[row + x];
+                float next = data[row + width + x];
+                float yAvg = (next + prev) / 2f;
+                data[row + x] = (y + yAvg) / 2f;
+            }
+        }
+    }
+
+    @Override
+    public void accumulate(double[] sums, float[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            sums[i] += data[offset + i];
+        }
+    }
+
+    @Override
+    public void slide(double[] sums, float[] data, int addOffset, int removeOffset, float[] target, int targetOffset, int length, double scale) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] = (float) (sums[i] * scale);
+            sums[i] += data[addOffset + i] - data[removeOffset + i];
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package me.redned.simcraft.util.heightmap;
+
+/**
+ * The method used to smooth a {@link HeightMap}.
+ */
+public enum SmoothingMode {
+    /**
+     * Averages each point with its neighbors once per pass,
+     * one axis at a time. Each pass is a full sweep over the
+     * heightmap, so this gets slower with every pass.
+     */
+    ITERATIVE,
+    /**
+     * Approximates the result of the iterative passes with
+     * three box blurs of an equivalent size, which take the
+     * same time regardless of the amount of passes.
+     */
+    BOX_BLUR
+}
@@ -0,0 +1,83 @@
+package me.redned.simcraft.world;
+
+import me.redned.levelparser.BlockState;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global registry assigning each block state a numeric id.
+ * <p>
+ * Sections store the id of each block rather than the state
+ * itself, so block data holds no references to states and can
+ * be kept off the heap. Ids are assigned the first time a state
+ * is seen and never change afterwards, with air always being 0.
+ */
+public final class BlockStateRegistry {
+    public static final int AIR_ID = 0;
+    public static final int MAX_STATES = 0xFFFF + 1;
+
+    private static final Map<BlockState, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile BlockState[] states = new BlockState[256];
+    private static int size;
+
+    static {
+        getId(BlockState.AIR);
+    }
+
+    private BlockStateRegistry() {
+    }
+
+    /**
+     * Gets the id of the given state, assigning it
+     * a new id if it has not been seen before.
+     *
+     * @param state the block state
+     * @return the id of the state
+     */
+    public static int getId(BlockState state) {
+        Integer id = IDS.get(state);
+        if (id != null) {
+            return id;
+        }
+
+        return register(state);
+    }
+
+    /**
+     * Gets the state with the given id.
+     *
+     * @param id the id of the state
+     * @return the state with the given id
+     */
+    public static BlockState getState(int id) {
+        return states[id];
+    }
+
+    public static synchronized int size() {
+        return size;
+    }
+
+    private static synchronized int register(BlockState state) {
+        Integer existing = IDS.get(state);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (size == MAX_STATES) {
+            throw new IllegalStateException("Cannot register more than " + MAX_STATES + " block states!");
+        }
+
+        // The state is stored before its id is published, so any thread that can see the id can also see the state
+        if (size == states.length) {
+            states = Arrays.copyOf(states, states.length * 2);
+        }
+
+        int id = size++;
+        states[id] = state;
+
+        IDS.put(state, id);
+        return id;
+    }
+}
@@ -0,0 +1,192 @@
+package me.redned.simcraft.world;
+
+import me.redned.levelparser.BlockState;
+import me.redned.simcraft.util.function.TriIntObjConsumer;
+
+import java.util.Objects;
+
+/**
+ * A 16x16x16 section of blocks within a chunk.
+ * <p>
+ * Sections start out holding a single block state for
+ * every position, and only expand into a buffer holding
+ * the {@link BlockStateRegistry} id of each block once a
+ * different state is written. Buffers are allocated from
+ * the {@link SectionStorage} of the chunk storage, which
+ * may keep them off the heap.
+ * <p>
+ * Sections are not thread-safe on their own, and are
+ * guarded by the lock of the {@link WorldChunk} they
+ * belong to.
+ */
+public class ChunkSection {
+    public static final int SIZE = 16;
+    public static final int VOLUME = SIZE * SIZE * SIZE;
+
+    private final SectionStorage storage;
+
+    private BlockState uniformState;
+    private SectionBuffer blocks;
+
+    public ChunkSection(SectionStorage storage) {
+        this(storage, BlockState.AIR);
+    }
+
+    public ChunkSection(SectionStorage storage, BlockState state) {
+        this.storage = storage;
+        this.uniformState = state;
+    }
+
+    public static int getIndex(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    public BlockState getBlockState(int x, int y, int z) {
+        if (this.uniformState != null) {
+            return this.uniformState;
+        }
+
+        return BlockStateRegistry.getState(this.blocks.get(getIndex(x, y, z)));
+    }
+
+    public void setBlockState(int x, int y, int z, BlockState state) {
+        if (this.uniformState != null) {
+            if (this.uniformState.equals(state)) {
+                return;
+            }
+
+            this.expand();
+        }
+
+        this.blocks.set(getIndex(x, y, z), BlockStateRegistry.getId(state));
+    }
+
+    /**
+     * Fills the given box within this section with the given state.
+     * All positions are inclusive.
+     *
+     * @param minX the minimum X position
+     * @param minY the minimum Y position
+     * @param minZ the minimum Z position
+     * @param maxX the maximum X position
+     * @param maxY the maximum Y position
+     * @param maxZ the maximum Z position
+     * @param state the state to fill with
+     */
+    public void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, BlockState state) {
+        if (minX == 0 && minY == 0 && minZ == 0 && maxX == SIZE - 1 && maxY == SIZE - 1 && maxZ == SIZE - 1) {
+            this.setUniform(state);
+            return;
+        }
+
+        if (this.uniformState != null) {
+            if (this.uniformState.equals(state)) {
+                return;
+            }
+
+            this.expand();
+        }
+
+        int id = BlockStateRegistry.getId(state);
+        for (int y = minY; y <= maxY; y++) {
+            // Whole layers are contiguous, so fill them in one go
+            if (minX == 0 && minZ == 0 && maxX == SIZE - 1 && maxZ == SIZE - 1) {
+                this.blocks.fill(getIndex(0, y, 0), getIndex(0, y + 1, 0), id);
+                continue;
+            }
+
+            for (int z = minZ; z <= maxZ; z++) {
+                this.blocks.fill(getIndex(minX, y, z), getIndex(maxX, y, z) + 1, id);
+            }
+        }
+    }
+
+    /**
+     * Sets every block in this section to the given state.
+     *
+     * @param state the state to set
+     */
+    public void setUniform(BlockState state) {
+        this.release();
+        this.uniformState = state;
+    }
+
+    public boolean isUniform() {
+        return this.uniformState != null;
+    }
+
+    public BlockState getUniformState() {
+        return this.uniformState;
+    }
+
+    /**
+     * Gets the {@link BlockStateRegistry} id of the block at the
+     * given index, as given by {@link #getIndex(int, int, int)}.
+     * Only valid once the section is no longer uniform.
+     *
+     * @param index the index of the block
+     * @return the state id of the block
+     */
+    public int getStateId(int index) {
+        return this.blocks.get(index);
+    }
+
+    /**
+     * Gets if every block in this section is air.
+     *
+     * @return if this section is empty
+     */
+    public boolean isEmpty() {
+        if (this.uniformState != null) {
+            return BlockState.AIR.equals(this.uniformState);
+        }
+
+        for (int i = 0; i < VOLUME; i++) {
+            if (this.blocks.get(i) != BlockStateRegistry.AIR_ID) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Iterates over every block in this section, with
+     * X being the innermost loop, followed by Z and then Y.
+     *
+     * @param consumer the consumer to accept each block
+     */
+    public void forEach(TriIntObjConsumer<? super BlockState> consumer) {
+        Objects.requireNonNull(consumer);
+
+        int index = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    BlockState state = this.uniformState != null ? this.uniformState : BlockStateRegistry.getState(this.blocks.get(index));
+                    consumer.accept(x, y, z, state);
+
+                    index++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the block buffer of this section to its storage,
+     * if the section has one. A section with a buffer is left
+     * filled with air, while a uniform section keeps its state.
+     */
+    public void release() {
+        if (this.blocks != null) {
+            this.blocks.release();
+            this.blocks = null;
+            this.uniformState = BlockState.AIR;
+        }
+    }
+
+    private void expand() {
+        this.blocks = this.storage.allocate(BlockStateRegistry.getId(this.uniformState));
+        this.uniformState = null;
+    }
+}
@@ -0,0 +1,174 @@
+package me.redned.simcraft.world;
+
+import lombok.Getter;
+import me.redned.levelparser.BlockState;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the chunks of a world in sections, allowing
+ * blocks to be written either one at a time or in bulk
+ * a section at a time.
+ * <p>
+ * Chunks can be written to from multiple threads, with
+ * each chunk guarding its own sections.
+ * <p>
+ * Once the chunks of a region file have been written out
+ * and released, the region file can be marked as flushed,
+ * after which creating any chunk within it fails.
+ * <p>
+ * The block data of each section is allocated from a
+ * {@link SectionStorage}, which may keep it off the heap.
+ */
+public class ChunkStorage {
+    @Getter
+    private final int minHeight;
+    @Getter
+    private final int maxHeight;
+    @Getter
+    private final SectionStorage sectionStorage;
+
+    private final Map<Long, WorldChunk> chunks = new ConcurrentHashMap<>();
+    private final Set<Long> flushedRegionFiles = ConcurrentHashMap.newKeySet();
+
+    public ChunkStorage(int minHeight, int maxHeight, SectionStorage sectionStorage) {
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+        this.sectionStorage = sectionStorage;
+    }
+
+    public WorldChunk getChunk(int chunkX, int chunkZ) {
+        return this.chunks.computeIfAbsent(getChunkKey(chunkX, chunkZ), key -> {
+            if (!this.flushedRegionFiles.isEmpty() && this.flushedRegionFiles.contains(getChunkKey(chunkX >> 5, chunkZ >> 5))) {
+                throw new IllegalStateException("Chunk " + chunkX + ", " + chunkZ + " was written to after its region file was flushed!");
+            }
+
+            return new WorldChunk(chunkX, chunkZ, this.minHeight, this.maxHeight, this.sectionStorage);
+        });
+    }
+
+    public WorldChunk getChunkIfPresent(int chunkX, int chunkZ) {
+        return this.chunks.get(getChunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Removes the given chunk from this storage, releasing
+     * its block data. The chunk must no longer be in use.
+     *
+     * @param chunkX the X position of the chunk
+     * @param chunkZ the Z position of the chunk
+     */
+    public void removeChunk(int chunkX, int chunkZ) {
+        WorldChunk chunk = this.chunks.remove(getChunkKey(chunkX, chunkZ));
+        if (chunk != null) {
+            chunk.release();
+        }
+    }
+
+    public Collection<WorldChunk> getChunks() {
+        return this.chunks.values();
+    }
+
+    /**
+     * Marks the region file containing the given 32x32 chunks as
+     * flushed, so no more chunks can be created within it.
+     *
+     * @param regionX the X position of the region file
+     * @param regionZ the Z position of the region file
+     */
+    public void markRegionFileFlushed(int regionX, int regionZ) {
+        this.flushedRegionFiles.add(getChunkKey(regionX, regionZ));
+    }
+
+    public boolean isRegionFileFlushed(int regionX, int regionZ) {
+        return this.flushedRegionFiles.contains(getChunkKey(regionX, regionZ));
+    }
+
+    /**
+     * Removes every chunk and releases the section storage.
+     */
+    public void close() {
+        for (WorldChunk chunk : this.chunks.values()) {
+            chunk.release();
+        }
+
+        this.chunks.clear();
+        this.sectionStorage.close();
+    }
+
+    public BlockState getBlockState(int x, int y, int z) {
+        if (y < this.minHeight || y >= this.maxHeight) {
+            return BlockState.AIR;
+        }
+
+        WorldChunk chunk = this.getChunkIfPresent(x >> 4, z >> 4);
+        if (chunk == null) {
+            return BlockState.AIR;
+        }
+
+        return chunk.getBlockState(x & 15, y, z & 15);
+    }
+
+    /**
+     * Gets the Y position of the highest non-air block in
+     * the given column.
+     *
+     * @param x the X position of the column
+     * @param z the Z position of the column
+     * @return the Y position of the highest block, or one below the minimum height if the column is empty
+     */
+    public int getTopBlockY(int x, int z) {
+        WorldChunk chunk = this.getChunkIfPresent(x >> 4, z >> 4);
+        if (chunk == null) {
+            return this.minHeight - 1;
+        }
+
+        return chunk.getTopBlockY(x & 15, z & 15);
+    }
+
+    public void setBlockState(int x, int y, int z, BlockState state) {
+        if (y < this.minHeight || y >= this.maxHeight) {
+            return;
+        }
+
+        this.getChunk(x >> 4, z >> 4).setBlockState(x & 15, y, z & 15, state);
+    }
+
+    /**
+     * Fills the given box with the given state. The box is
+     * clipped into each chunk and section it touches, with
+     * each section being written in a single operation.
+     * All positions are inclusive.
+     *
+     * @param minX the minimum X position
+     * @param minY the minimum Y position
+     * @param minZ the minimum Z position
+     * @param maxX the maximum X position
+     * @param maxY the maximum Y position
+     * @param maxZ the maximum Z position
+     * @param state the state to fill with
+     */
+    public void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, BlockState state) {
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return;
+        }
+
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                int chunkMinX = Math.max(minX, chunkX << 4) & 15;
+                int chunkMaxX = Math.min(maxX, (chunkX << 4) + 15) & 15;
+                int chunkMinZ = Math.max(minZ, chunkZ << 4) & 15;
+                int chunkMaxZ = Math.min(maxZ, (chunkZ << 4) + 15) & 15;
+
+                this.getChunk(chunkX, chunkZ).fill(chunkMinX, minY, chunkMinZ, chunkMaxX, maxY, chunkMaxZ, state);
+            }
+        }
+    }
+
+    public static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+}
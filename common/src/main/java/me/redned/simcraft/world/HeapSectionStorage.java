@@ -0,0 +1,59 @@
+package me.redned.simcraft.world;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Section storage keeping the blocks of each section
+ * in a short array on the heap.
+ */
+public class HeapSectionStorage implements SectionStorage {
+    private static final int ARRAY_HEADER_SIZE = 16;
+
+    private final AtomicLong allocated = new AtomicLong();
+
+    @Override
+    public SectionBuffer allocate(int id) {
+        this.allocated.incrementAndGet();
+        return new Buffer(id);
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return this.allocated.get() * (ARRAY_HEADER_SIZE + ChunkSection.VOLUME * 2L);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private class Buffer implements SectionBuffer {
+        private final short[] ids = new short[ChunkSection.VOLUME];
+
+        public Buffer(int id) {
+            if (id != BlockStateRegistry.AIR_ID) {
+                Arrays.fill(this.ids, (short) id);
+            }
+        }
+
+        @Override
+        public int get(int index) {
+            return this.ids[index] & 0xFFFF;
+        }
+
+        @Override
+        public void set(int index, int id) {
+            this.ids[index] = (short) id;
+        }
+
+        @Override
+        public void fill(int fromIndex, int toIndex, int id) {
+            Arrays.fill(this.ids, fromIndex, toIndex, (short) id);
+        }
+
+        @Override
+        public void release() {
+            HeapSectionStorage.this.allocated.decrementAndGet();
+        }
+    }
+}
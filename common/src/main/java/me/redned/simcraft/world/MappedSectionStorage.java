@@ -0,0 +1,164 @@
+package me.redned.simcraft.world;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Section storage keeping the blocks of each section in a
+ * memory mapped temporary file, so block data is kept off
+ * the heap and can be paged out by the operating system.
+ * <p>
+ * The file is mapped in slabs holding a fixed amount of
+ * sections, with a new slab mapped whenever every slot is
+ * in use. Released slots are reused by later sections, so
+ * the file only grows to the most sections held at once.
+ * <p>
+ * Like {@link me.redned.simcraft.util.heightmap.MappedFloatGrid},
+ * values can be read and written from any thread, as long as
+ * the same section is not written from multiple threads at once.
+ * <p>
+ * Java can not unmap a file on request, so closing the storage
+ * only drops its slabs. The mappings, and the temporary file
+ * behind them, are released once the garbage collector collects
+ * the slabs and the buffers of any sections still holding them.
+ */
+public class MappedSectionStorage implements SectionStorage {
+    private static final int SECTIONS_PER_SLAB = 4096;
+    private static final long SLAB_SIZE = (long) SECTIONS_PER_SLAB * ChunkSection.VOLUME * Short.BYTES;
+    private static final int BUFFER_OBJECT_SIZE = 32;
+
+    private final FileChannel channel;
+    private final List<ShortBuffer> slabs = new ArrayList<>();
+
+    // Free slots, stored as the slab and offset of each slot
+    private int[] freeSlots = new int[0];
+    private int freeSlotCount;
+
+    private int allocated;
+
+    public MappedSectionStorage() {
+        try {
+            Path path = Files.createTempFile("simcraft-sections", ".bin");
+            this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to create section storage!", ex);
+        }
+    }
+
+    @Override
+    public SectionBuffer allocate(int id) {
+        ShortBuffer slab;
+        int slot;
+        synchronized (this) {
+            if (this.freeSlotCount == 0) {
+                this.mapSlab();
+            }
+
+            int freeSlot = this.freeSlots[--this.freeSlotCount];
+            slab = this.slabs.get(freeSlot / SECTIONS_PER_SLAB);
+            slot = freeSlot;
+            this.allocated++;
+        }
+
+        Buffer buffer = new Buffer(slab, slot);
+
+        // Slots may have been used by an earlier section, so always clear them
+        buffer.fill(0, ChunkSection.VOLUME, id);
+        return buffer;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        // Block data is memory mapped, so only the buffer objects are on the heap
+        synchronized (this) {
+            return (long) this.allocated * BUFFER_OBJECT_SIZE;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        this.slabs.clear();
+        this.freeSlots = new int[0];
+        this.freeSlotCount = 0;
+
+        try {
+            this.channel.close();
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to close section storage!", ex);
+        }
+    }
+
+    private void mapSlab() {
+        int slabIndex = this.slabs.size();
+        try {
+            MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, slabIndex * SLAB_SIZE, SLAB_SIZE);
+            this.slabs.add(buffer.order(ByteOrder.nativeOrder()).asShortBuffer());
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to map section storage!", ex);
+        }
+
+        if (this.freeSlots.length < SECTIONS_PER_SLAB) {
+            this.freeSlots = new int[SECTIONS_PER_SLAB];
+        }
+
+        // Handed out in ascending order, so neighboring sections are near each other in the file
+        for (int i = 0; i < SECTIONS_PER_SLAB; i++) {
+            this.freeSlots[i] = slabIndex * SECTIONS_PER_SLAB + SECTIONS_PER_SLAB - 1 - i;
+        }
+
+        this.freeSlotCount = SECTIONS_PER_SLAB;
+    }
+
+    private synchronized void free(int slot) {
+        if (this.freeSlotCount == this.freeSlots.length) {
+            this.freeSlots = Arrays.copyOf(this.freeSlots, Math.max(SECTIONS_PER_SLAB, this.freeSlots.length * 2));
+        }
+
+        this.freeSlots[this.freeSlotCount++] = slot;
+        this.allocated--;
+    }
+
+    private class Buffer implements SectionBuffer {
+        private final ShortBuffer slab;
+        private final int slot;
+        private final int offset;
+
+        public Buffer(ShortBuffer slab, int slot) {
+            this.slab = slab;
+            this.slot = slot;
+            this.offset = (slot % SECTIONS_PER_SLAB) * ChunkSection.VOLUME;
+        }
+
+        @Override
+        public int get(int index) {
+            return this.slab.get(this.offset + index) & 0xFFFF;
+        }
+
+        @Override
+        public void set(int index, int id) {
+            this.slab.put(this.offset + index, (short) id);
+        }
+
+        @Override
+        public void fill(int fromIndex, int toIndex, int id) {
+            short value = (short) id;
+            for (int index = this.offset + fromIndex; index < this.offset + toIndex; index++) {
+                this.slab.put(index, value);
+            }
+        }
+
+        @Override
+        public void release() {
+            MappedSectionStorage.this.free(this.slot);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package me.redned.simcraft.world;
+
+/**
+ * The block data of a single {@link ChunkSection}, holding
+ * the {@link BlockStateRegistry} id of each of its blocks.
+ * <p>
+ * Blocks are indexed as given by {@link ChunkSection#getIndex(int, int, int)}.
+ */
+public interface SectionBuffer {
+
+    int get(int index);
+
+    void set(int index, int id);
+
+    /**
+     * Sets every block from the given index, inclusive,
+     * up to the given index, exclusive, to the given id.
+     *
+     * @param fromIndex the first index to set
+     * @param toIndex the index after the last index to set
+     * @param id the id to set
+     */
+    void fill(int fromIndex, int toIndex, int id);
+
+    /**
+     * Returns this buffer to the storage it came from. The
+     * buffer must not be used again once it is released.
+     */
+    void release();
+}
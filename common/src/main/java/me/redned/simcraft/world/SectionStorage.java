@@ -0,0 +1,51 @@
+package me.redned.simcraft.world;
+
+/**
+ * Allocates the {@link SectionBuffer}s that hold the block
+ * data of every section in a {@link ChunkStorage}.
+ */
+public interface SectionStorage {
+
+    /**
+     * Allocates a buffer for a section, with every
+     * block set to the given id.
+     *
+     * @param id the id to set every block to
+     * @return the allocated buffer
+     */
+    SectionBuffer allocate(int id);
+
+    /**
+     * Gets the approximate amount of heap memory, in bytes,
+     * used by the buffers allocated from this storage.
+     *
+     * @return the approximate memory footprint of this storage
+     */
+    long getMemoryFootprint();
+
+    /**
+     * Releases any resources held by this storage. Buffers
+     * allocated from it must not be used afterwards.
+     */
+    void close();
+
+    enum Type {
+        /**
+         * Stores the blocks of each section in an array
+         * on the heap.
+         */
+        HEAP,
+        /**
+         * Stores the blocks of each section in a memory mapped
+         * temporary file, keeping block data off the heap.
+         */
+        MAPPED;
+
+        public SectionStorage create() {
+            return switch (this) {
+                case HEAP -> new HeapSectionStorage();
+                case MAPPED -> new MappedSectionStorage();
+            };
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package me.redned.simcraft.world;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import me.redned.levelparser.BlockState;
+import org.cloudburstmc.nbt.NbtMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A column of {@link ChunkSection}s making up a chunk.
+ * <p>
+ * Positions passed to this chunk are relative to the chunk
+ * on the X and Z axis, and absolute on the Y axis. Writers
+ * that need to touch many blocks at once can lock the chunk
+ * and write to its sections directly, at the cost of the
+ * top block index no longer being kept up to date.
+ * <p>
+ * The chunk keeps the Y position of the highest non-air block
+ * in each column, updated as blocks are written. Removing the
+ * highest block of a column marks the column to be searched
+ * again the next time it is requested.
+ */
+@Getter
+public class WorldChunk {
+    private static final int COLUMNS = 16 * 16;
+
+    private final int x;
+    private final int z;
+
+    private final int minHeight;
+    private final int maxHeight;
+
+    private final ChunkSection[] sections;
+    @Getter(AccessLevel.NONE)
+    private final SectionStorage sectionStorage;
+    private final List<NbtMap> blockEntities = Collections.synchronizedList(new ArrayList<>());
+
+    @Getter(AccessLevel.NONE)
+    private final int[] topBlocks = new int[COLUMNS];
+    @Getter(AccessLevel.NONE)
+    private final BitSet staleTopBlocks = new BitSet(COLUMNS);
+
+    public WorldChunk(int x, int z, int minHeight, int maxHeight, SectionStorage sectionStorage) {
+        this.x = x;
+        this.z = z;
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+
+        this.sections = new ChunkSection[(maxHeight - minHeight) >> 4];
+        this.sectionStorage = sectionStorage;
+
+        Arrays.fill(this.topBlocks, minHeight - 1);
+    }
+
+    public int getMinSectionY() {
+        return this.minHeight >> 4;
+    }
+
+    public boolean isInBounds(int y) {
+        return y >= this.minHeight && y < this.maxHeight;
+    }
+
+    public synchronized BlockState getBlockState(int x, int y, int z) {
+        if (!this.isInBounds(y)) {
+            return BlockState.AIR;
+        }
+
+        ChunkSection section = this.getSection(y >> 4);
+        if (section == null) {
+            return BlockState.AIR;
+        }
+
+        return section.getBlockState(x, y & 15, z);
+    }
+
+    public synchronized void setBlockState(int x, int y, int z, BlockState state) {
+        if (!this.isInBounds(y)) {
+            return;
+        }
+
+        this.getOrCreateSection(y >> 4).setBlockState(x, y & 15, z, state);
+
+        int column = getColumn(x, z);
+        if (!BlockState.AIR.equals(state)) {
+            this.topBlocks[column] = Math.max(this.topBlocks[column], y);
+        } else if (y == this.topBlocks[column]) {
+            this.staleTopBlocks.set(column);
+        }
+    }
+
+    /**
+     * Gets the Y position of the highest non-air block in
+     * the given column.
+     *
+     * @param x the X position of the column
+     * @param z the Z position of the column
+     * @return the Y position of the highest block, or one below the minimum height if the column is empty
+     */
+    public synchronized int getTopBlockY(int x, int z) {
+        int column = getColumn(x, z);
+        if (this.staleTopBlocks.get(column)) {
+            this.staleTopBlocks.clear(column);
+
+            int y = this.topBlocks[column];
+            while (y >= this.minHeight && BlockState.AIR.equals(this.getBlockState(x, y, z))) {
+                y--;
+            }
+
+            this.topBlocks[column] = y;
+        }
+
+        return this.topBlocks[column];
+    }
+
+    /**
+     * Fills the given box within this chunk with the given state,
+     * writing each section the box touches in a single operation.
+     * All positions are inclusive.
+     *
+     * @param minX the minimum X position
+     * @param minY the minimum Y position
+     * @param minZ the minimum Z position
+     * @param maxX the maximum X position
+     * @param maxY the maximum Y position
+     * @param maxZ the maximum Z position
+     * @param state the state to fill with
+     */
+    public synchronized void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, BlockState state) {
+        minY = Math.max(minY, this.minHeight);
+        maxY = Math.min(maxY, this.maxHeight - 1);
+        if (minY > maxY) {
+            return;
+        }
+
+        for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+            int sectionMinY = Math.max(minY, sectionY << 4) & 15;
+            int sectionMaxY = Math.min(maxY, (sectionY << 4) + 15) & 15;
+
+            this.getOrCreateSection(sectionY).fill(minX, sectionMinY, minZ, maxX, sectionMaxY, maxZ, state);
+        }
+
+        boolean air = BlockState.AIR.equals(state);
+        for (int columnZ = minZ; columnZ <= maxZ; columnZ++) {
+            for (int columnX = minX; columnX <= maxX; columnX++) {
+                int column = getColumn(columnX, columnZ);
+                if (!air) {
+                    this.topBlocks[column] = Math.max(this.topBlocks[column], maxY);
+                } else if (this.topBlocks[column] >= minY && this.topBlocks[column] <= maxY) {
+                    this.staleTopBlocks.set(column);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the section at the given section Y position, or
+     * null if nothing has been written to that section.
+     *
+     * @param sectionY the section Y position
+     * @return the section at the given position
+     */
+    public ChunkSection getSection(int sectionY) {
+        return this.sections[sectionY - this.getMinSectionY()];
+    }
+
+    /**
+     * Gets or creates the section at the given section Y position.
+     * <p>
+     * Callers writing to the returned section directly must hold
+     * the lock of this chunk while doing so.
+     *
+     * @param sectionY the section Y position
+     * @return the section at the given position
+     */
+    public synchronized ChunkSection getOrCreateSection(int sectionY) {
+        int index = sectionY - this.getMinSectionY();
+        ChunkSection section = this.sections[index];
+        if (section == null) {
+            section = new ChunkSection(this.sectionStorage);
+            this.sections[index] = section;
+        }
+
+        return section;
+    }
+
+    /**
+     * Gets if every block in this chunk is air and
+     * the chunk holds no block entities.
+     *
+     * @return if this chunk is empty
+     */
+    public synchronized boolean isEmpty() {
+        if (!this.blockEntities.isEmpty()) {
+            return false;
+        }
+
+        for (ChunkSection section : this.sections) {
+            if (section != null && !section.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the block data of every section in this chunk
+     * to the section storage. The chunk must not be used again
+     * once it has been released.
+     */
+    public synchronized void release() {
+        for (ChunkSection section : this.sections) {
+            if (section != null) {
+                section.release();
+            }
+        }
+    }
+
+    private static int getColumn(int x, int z) {
+        return (z << 4) | x;
+    }
+}
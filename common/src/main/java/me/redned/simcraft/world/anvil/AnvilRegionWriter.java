@@ -0,0 +1,214 @@
+package me.redned.simcraft.world.anvil;
+
+import me.redned.simcraft.util.concurrent.NamedThreadFactory;
+import me.redned.simcraft.world.WorldChunk;
+import me.redned.simcraft.world.light.ChunkNeighbours;
+import org.cloudburstmc.nbt.NBTOutputStream;
+import org.cloudburstmc.nbt.NbtUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes chunks to Anvil region files.
+ * <p>
+ * Every chunk is serialized and compressed on its own thread,
+ * and once every chunk of a region file has been compressed,
+ * the file is assembled in memory and written out with a single
+ * gathered write.
+ * <p>
+ * Chunks too large to fit in a region file are written to their
+ * own external chunk file next to it, like Minecraft does. Chunks
+ * made up entirely of air are left out, as missing chunks are
+ * generated as air by the world's flat generator.
+ */
+public class AnvilRegionWriter implements AutoCloseable {
+    private static final int SECTOR_SIZE = 4096;
+    private static final int HEADER_SECTORS = 2;
+    private static final int REGION_SIZE = 32;
+    private static final int MAX_CHUNK_SECTORS = 0xFF;
+
+    private static final byte ZLIB_COMPRESSION = 2;
+    private static final byte EXTERNAL_FLAG = (byte) 0x80;
+
+    private final Path regionPath;
+    private final ChunkSerializer serializer;
+    private final ExecutorService threadPool;
+
+    private final LongAdder skippedChunks = new LongAdder();
+
+    public AnvilRegionWriter(Path regionPath, int dataVersion, int threads) {
+        this.regionPath = regionPath;
+        this.serializer = new ChunkSerializer(dataVersion);
+        this.threadPool = Executors.newFixedThreadPool(Math.max(1, threads), new NamedThreadFactory("Region Writer"));
+    }
+
+    /**
+     * Writes the given chunks, blocking until every region
+     * file they belong to has been written. Any existing
+     * region files are replaced.
+     *
+     * @param chunks the chunks to write
+     * @param neighbours the chunks around the chunks being written, used to light them
+     * @throws IOException if a region file could not be written
+     */
+    public void write(Collection<WorldChunk> chunks, ChunkNeighbours neighbours) throws IOException {
+        Files.createDirectories(this.regionPath);
+
+        Map<Long, List<CompletableFuture<CompressedChunk>>> regions = new HashMap<>();
+        for (WorldChunk chunk : chunks) {
+            if (chunk.isEmpty()) {
+                this.skippedChunks.increment();
+                continue;
+            }
+
+            long regionKey = ((long) (chunk.getX() >> 5) << 32) | ((chunk.getZ() >> 5) & 0xFFFFFFFFL);
+            regions.computeIfAbsent(regionKey, key -> new ArrayList<>())
+                    .add(CompletableFuture.supplyAsync(() -> this.compress(chunk, neighbours), this.threadPool));
+        }
+
+        List<CompletableFuture<Void>> writes = new ArrayList<>(regions.size());
+        for (Map.Entry<Long, List<CompletableFuture<CompressedChunk>>> region : regions.entrySet()) {
+            int regionX = (int) (region.getKey() >> 32);
+            int regionZ = region.getKey().intValue();
+
+            List<CompletableFuture<CompressedChunk>> regionChunks = region.getValue();
+            writes.add(CompletableFuture.allOf(regionChunks.toArray(CompletableFuture[]::new))
+                    .thenRunAsync(() -> this.writeRegion(regionX, regionZ, regionChunks.stream().map(CompletableFuture::join).toList()), this.threadPool));
+        }
+
+        try {
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+
+            throw new RuntimeException("Failed to write region files!", ex.getCause());
+        }
+    }
+
+    public long getSkippedChunks() {
+        return this.skippedChunks.sum();
+    }
+
+    public long getSkippedSections() {
+        return this.serializer.getSkippedSections();
+    }
+
+    /**
+     * Gets the amount of bytes of region file saved by leaving
+     * out empty chunks. An empty chunk compresses to far less
+     * than a sector, so each one saves exactly one sector.
+     *
+     * @return the amount of bytes saved on disk
+     */
+    public long getSkippedChunkBytes() {
+        return this.skippedChunks.sum() * SECTOR_SIZE;
+    }
+
+    /**
+     * Gets the approximate amount of bytes saved by leaving
+     * out empty sections, before compression.
+     *
+     * @return the approximate amount of uncompressed bytes saved
+     */
+    public long getSkippedSectionBytes() {
+        return this.serializer.getSkippedSectionBytes();
+    }
+
+    @Override
+    public void close() {
+        this.threadPool.shutdownNow();
+    }
+
+    private CompressedChunk compress(WorldChunk chunk, ChunkNeighbours neighbours) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater();
+        try (NBTOutputStream nbtStream = NbtUtils.createWriter(new DeflaterOutputStream(output, deflater))) {
+            nbtStream.writeTag(this.serializer.serialize(chunk, neighbours));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to compress chunk at " + chunk.getX() + ", " + chunk.getZ(), ex);
+        } finally {
+            deflater.end();
+        }
+
+        return new CompressedChunk(chunk.getX(), chunk.getZ(), output.toByteArray());
+    }
+
+    private void writeRegion(int regionX, int regionZ, List<CompressedChunk> chunks) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE);
+        int timestamp = (int) (System.currentTimeMillis() / 1000);
+
+        List<ByteBuffer> buffers = new ArrayList<>(chunks.size() + 1);
+        buffers.add(header);
+
+        int sector = HEADER_SECTORS;
+        try {
+            for (CompressedChunk chunk : chunks) {
+                ByteBuffer payload = this.createPayload(chunk);
+                int sectors = payload.remaining() / SECTOR_SIZE;
+
+                int index = (chunk.x() & (REGION_SIZE - 1)) + (chunk.z() & (REGION_SIZE - 1)) * REGION_SIZE;
+                header.putInt(index * Integer.BYTES, (sector << 8) | sectors);
+                header.putInt(SECTOR_SIZE + index * Integer.BYTES, timestamp);
+
+                buffers.add(payload);
+                sector += sectors;
+            }
+
+            Path path = this.regionPath.resolve("r." + regionX + "." + regionZ + ".mca");
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer[] gathered = buffers.toArray(ByteBuffer[]::new);
+                long remaining = (long) sector * SECTOR_SIZE;
+                while (remaining > 0) {
+                    remaining -= channel.write(gathered);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write region file " + regionX + ", " + regionZ, ex);
+        }
+    }
+
+    private ByteBuffer createPayload(CompressedChunk chunk) throws IOException {
+        byte[] data = chunk.data();
+
+        // Each chunk is prefixed by its length and compression type, and padded to a whole sector
+        int sectors = (Integer.BYTES + 1 + data.length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        if (sectors > MAX_CHUNK_SECTORS) {
+            Files.write(this.regionPath.resolve("c." + chunk.x() + "." + chunk.z() + ".mcc"), data);
+
+            ByteBuffer payload = ByteBuffer.allocate(SECTOR_SIZE);
+            payload.putInt(1);
+            payload.put((byte) (ZLIB_COMPRESSION | EXTERNAL_FLAG));
+            return payload.clear();
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(sectors * SECTOR_SIZE);
+        payload.putInt(data.length + 1);
+        payload.put(ZLIB_COMPRESSION);
+        payload.put(data);
+        return payload.clear();
+    }
+
+    private record CompressedChunk(int x, int z, byte[] data) {
+    }
+}
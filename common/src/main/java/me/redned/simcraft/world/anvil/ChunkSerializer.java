@@ -0,0 +1,265 @@
+package me.redned.simcraft.world.anvil;
+
+import me.redned.levelparser.BlockState;
+import me.redned.simcraft.world.BlockStateRegistry;
+import me.redned.simcraft.world.ChunkSection;
+import me.redned.simcraft.world.WorldChunk;
+import me.redned.simcraft.world.light.ChunkLight;
+import me.redned.simcraft.world.light.ChunkLighter;
+import me.redned.simcraft.world.light.ChunkNeighbours;
+import org.cloudburstmc.nbt.NBTOutputStream;
+import org.cloudburstmc.nbt.NbtMap;
+import org.cloudburstmc.nbt.NbtMapBuilder;
+import org.cloudburstmc.nbt.NbtType;
+import org.cloudburstmc.nbt.NbtUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serializes chunks into the NBT format used by Anvil
+ * region files since Minecraft 1.18.
+ * <p>
+ * Each chunk is lit together with its neighbors and has its
+ * heightmaps computed as it is serialized. Chunks are only marked
+ * as lit when none of their neighbors can still change, so servers
+ * can load them without doing any work of their own, and relight
+ * any chunk whose light could still be wrong.
+ * <p>
+ * Sections made up entirely of air are left out, other than
+ * any light they hold, as missing sections are read as air.
+ */
+public class ChunkSerializer {
+    private static final int MIN_BITS_PER_BLOCK = 4;
+    private static final NbtMap BIOMES = NbtMap.builder()
+            .putList("palette", NbtType.STRING, List.of("minecraft:plains"))
+            .build();
+
+    // The uncompressed size of the block data left out for each empty section
+    private static final int EMPTY_SECTION_SIZE = getSerializedSize(NbtMap.builder()
+            .putCompound("block_states", NbtMap.builder()
+                    .putList("palette", NbtType.COMPOUND, List.of(NbtMap.builder().putString("Name", "minecraft:air").build()))
+                    .build())
+            .putCompound("biomes", BIOMES)
+            .build());
+
+    private final int dataVersion;
+
+    // Most chunks share the same few states, so each state is only converted once
+    private final Map<BlockState, NbtMap> stateTags = new ConcurrentHashMap<>();
+
+    private final LongAdder skippedSections = new LongAdder();
+
+    public ChunkSerializer(int dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
+    /**
+     * Serializes the given chunk. The chunk and its neighbors are
+     * each locked in turn while they are read, so callers must not
+     * hold the lock of any chunk.
+     *
+     * @param chunk the chunk to serialize
+     * @param neighbours the chunks around the chunk
+     * @return the serialized chunk
+     */
+    public NbtMap serialize(WorldChunk chunk, ChunkNeighbours neighbours) {
+        WorldChunk[] chunks = new WorldChunk[9];
+        for (int offsetZ = -1; offsetZ <= 1; offsetZ++) {
+            for (int offsetX = -1; offsetX <= 1; offsetX++) {
+                chunks[(offsetZ + 1) * 3 + (offsetX + 1)] = offsetX == 0 && offsetZ == 0
+                        ? chunk
+                        : neighbours.getChunk(chunk.getX() + offsetX, chunk.getZ() + offsetZ);
+            }
+        }
+
+        // Lit before locking the chunk, as its neighbors are locked while they are read
+        ChunkLight light = ChunkLighter.light(chunks);
+
+        // Checked once the neighbors have been read, so a neighbor released while it was read is never final
+        boolean lightSettled = true;
+        for (int offsetZ = -1; offsetZ <= 1 && lightSettled; offsetZ++) {
+            for (int offsetX = -1; offsetX <= 1 && lightSettled; offsetX++) {
+                lightSettled = neighbours.isFinal(chunk.getX() + offsetX, chunk.getZ() + offsetZ);
+            }
+        }
+
+        synchronized (chunk) {
+            List<NbtMap> sections = new ArrayList<>();
+            for (int sectionIndex = 0; sectionIndex < chunk.getSections().length; sectionIndex++) {
+                ChunkSection section = chunk.getSections()[sectionIndex];
+                if (section != null && section.isEmpty()) {
+                    this.skippedSections.increment();
+                    section = null;
+                }
+
+                byte[] skyLight = light.skyLight()[sectionIndex];
+                byte[] blockLight = light.blockLight()[sectionIndex];
+
+                // Sections with no blocks are still written when they hold light
+                if (section == null && skyLight == null && blockLight == null) {
+                    continue;
+                }
+
+                NbtMapBuilder builder = NbtMap.builder()
+                        .putByte("Y", (byte) (chunk.getMinSectionY() + sectionIndex));
+
+                if (section != null) {
+                    builder.putCompound("block_states", this.serializeBlockStates(section))
+                            .putCompound("biomes", BIOMES);
+                }
+
+                if (skyLight != null) {
+                    builder.putByteArray("SkyLight", skyLight);
+                }
+
+                if (blockLight != null) {
+                    builder.putByteArray("BlockLight", blockLight);
+                }
+
+                sections.add(builder.build());
+            }
+
+            // Heights range from 0 to the height of the world, inclusive
+            int heightBits = Integer.SIZE - Integer.numberOfLeadingZeros(chunk.getMaxHeight() - chunk.getMinHeight());
+
+            NbtMapBuilder builder = NbtMap.builder()
+                    .putInt("DataVersion", this.dataVersion)
+                    .putInt("xPos", chunk.getX())
+                    .putInt("yPos", chunk.getMinSectionY())
+                    .putInt("zPos", chunk.getZ())
+                    .putString("Status", "full")
+                    .putLong("LastUpdate", 0L)
+                    .putLong("InhabitedTime", 0L)
+                    .putByte("isLightOn", (byte) (lightSettled ? 1 : 0))
+                    .putCompound("Heightmaps", NbtMap.builder()
+                            .putLongArray("MOTION_BLOCKING", pack(light.motionBlocking(), heightBits))
+                            .putLongArray("WORLD_SURFACE", pack(light.worldSurface(), heightBits))
+                            .build())
+                    .putList("sections", NbtType.COMPOUND, sections);
+
+            synchronized (chunk.getBlockEntities()) {
+                builder.putList("block_entities", NbtType.COMPOUND, new ArrayList<>(chunk.getBlockEntities()));
+            }
+
+            return builder.build();
+        }
+    }
+
+    /**
+     * Gets the amount of sections that were left out
+     * for being made up entirely of air.
+     *
+     * @return the amount of skipped sections
+     */
+    public long getSkippedSections() {
+        return this.skippedSections.sum();
+    }
+
+    /**
+     * Gets the approximate amount of bytes saved by leaving
+     * out empty sections, before compression.
+     *
+     * @return the approximate amount of bytes saved
+     */
+    public long getSkippedSectionBytes() {
+        return this.skippedSections.sum() * EMPTY_SECTION_SIZE;
+    }
+
+    private NbtMap serializeBlockStates(ChunkSection section) {
+        if (section.isUniform()) {
+            return NbtMap.builder()
+                    .putList("palette", NbtType.COMPOUND, List.of(this.getStateTag(section.getUniformState())))
+                    .build();
+        }
+
+        // Build the palette from the states that are used, reading the block data straight from the section
+        int[] usedIds = new int[16];
+        int usedCount = 0;
+        List<NbtMap> usedStates = new ArrayList<>();
+
+        int[] indices = new int[ChunkSection.VOLUME];
+        int lastId = -1;
+        int lastIndex = -1;
+        for (int i = 0; i < ChunkSection.VOLUME; i++) {
+            int id = section.getStateId(i);
+            if (id != lastId) {
+                // Sections hold few states, so a linear scan is quicker than hashing the id
+                lastIndex = -1;
+                for (int used = 0; used < usedCount; used++) {
+                    if (usedIds[used] == id) {
+                        lastIndex = used;
+                        break;
+                    }
+                }
+
+                if (lastIndex == -1) {
+                    if (usedCount == usedIds.length) {
+                        usedIds = Arrays.copyOf(usedIds, usedCount * 2);
+                    }
+
+                    lastIndex = usedCount;
+                    usedIds[usedCount++] = id;
+                    usedStates.add(this.getStateTag(BlockStateRegistry.getState(id)));
+                }
+
+                lastId = id;
+            }
+
+            indices[i] = lastIndex;
+        }
+
+        NbtMapBuilder builder = NbtMap.builder()
+                .putList("palette", NbtType.COMPOUND, usedStates);
+
+        // A single state needs no data, as every block uses it
+        if (usedStates.size() > 1) {
+            int bits = Math.max(MIN_BITS_PER_BLOCK, Integer.SIZE - Integer.numberOfLeadingZeros(usedStates.size() - 1));
+            builder.putLongArray("data", pack(indices, bits));
+        }
+
+        return builder.build();
+    }
+
+    private NbtMap getStateTag(BlockState state) {
+        return this.stateTags.computeIfAbsent(state, key -> {
+            NbtMapBuilder builder = NbtMap.builder().putString("Name", key.getIdentifier());
+            if (!key.getProperties().isEmpty()) {
+                NbtMapBuilder properties = NbtMap.builder();
+                key.getProperties().forEach((name, value) -> properties.putString(name, String.valueOf(value)));
+                builder.putCompound("Properties", properties.build());
+            }
+
+            return builder.build();
+        });
+    }
+
+    private static int getSerializedSize(NbtMap tag) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (NBTOutputStream nbtStream = NbtUtils.createWriter(output)) {
+            nbtStream.writeTag(tag);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to measure section size", ex);
+        }
+
+        return output.size();
+    }
+
+    private static long[] pack(int[] values, int bits) {
+        // Values never span two longs, so any leftover bits in each long are unused
+        int valuesPerLong = Long.SIZE / bits;
+        long[] data = new long[(values.length + valuesPerLong - 1) / valuesPerLong];
+        for (int i = 0; i < values.length; i++) {
+            data[i / valuesPerLong] |= (long) values[i] << ((i % valuesPerLong) * bits);
+        }
+
+        return data;
+    }
+}
@@ -0,0 +1,199 @@
+package me.redned.simcraft.world.light;
+
+import me.redned.levelparser.BlockState;
+import me.redned.simcraft.world.BlockStateRegistry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * How a block state interacts with light and movement, used
+ * when lighting chunks and computing their heightmaps.
+ * <p>
+ * There is no block registry to read these from, so they are
+ * derived from the identifier of each state. Blocks that are not
+ * recognized are treated as full, opaque blocks. Properties are
+ * cached by {@link BlockStateRegistry} id, as they are looked up
+ * for every block of every chunk.
+ *
+ * @param opacity how much light is reduced by passing through the block, from 0 to 15
+ * @param emission the light level emitted by the block
+ * @param air if the block is air
+ * @param motionBlocking if the block blocks movement or holds a fluid
+ */
+public record BlockLightProperties(int opacity, int emission, boolean air, boolean motionBlocking) {
+    private static final BlockLightProperties AIR = new BlockLightProperties(0, 0, true, false);
+
+    private static final Set<String> AIR_BLOCKS = Set.of("air", "cave_air", "void_air");
+
+    // Blocks that let light through and can be walked through
+    private static final Set<String> PASSABLE_BLOCKS = Set.of(
+            "grass", "tall_grass", "fern", "large_fern", "dead_bush", "dandelion", "poppy", "blue_orchid",
+            "allium", "azure_bluet", "oxeye_daisy", "cornflower", "lily_of_the_valley", "wither_rose",
+            "sunflower", "lilac", "rose_bush", "peony", "sugar_cane", "vine", "torch", "wall_torch",
+            "soul_torch", "soul_wall_torch", "redstone_torch", "redstone_wall_torch", "rail", "powered_rail",
+            "detector_rail", "activator_rail", "redstone_wire", "lever", "tripwire", "tripwire_hook",
+            "seagrass", "tall_seagrass", "kelp", "kelp_plant", "light", "structure_void", "glow_lichen",
+            "hanging_roots", "wheat", "carrots", "potatoes", "beetroots", "nether_portal"
+    );
+    private static final List<String> PASSABLE_SUFFIXES = List.of(
+            "_sapling", "_tulip", "_sign", "_button", "_pressure_plate", "_banner", "_coral_fan", "_mushroom"
+    );
+
+    // Blocks that let light through but can not be walked through
+    private static final Set<String> TRANSPARENT_BLOCKS = Set.of(
+            "glass", "glass_pane", "iron_bars", "ladder", "chain", "lantern", "soul_lantern", "barrier",
+            "beacon", "flower_pot", "end_rod", "cake", "bell", "campfire", "soul_campfire", "anvil",
+            "hopper", "chest", "trapped_chest", "ender_chest", "scaffolding", "snow", "lectern",
+            "enchanting_table", "brewing_stand", "cauldron", "sea_pickle", "conduit", "dirt_path", "farmland",
+            "candle"
+    );
+    private static final List<String> TRANSPARENT_SUFFIXES = List.of(
+            "_glass", "_glass_pane", "_fence", "_fence_gate", "_wall", "_slab", "_stairs", "_door",
+            "_trapdoor", "_carpet", "_bed", "_candle", "_head", "_skull"
+    );
+    private static final List<String> TRANSPARENT_PREFIXES = List.of("potted_");
+
+    // Blocks that let some light through
+    private static final Set<String> DIFFUSING_BLOCKS = Set.of("water", "bubble_column", "ice", "frosted_ice", "cobweb", "slime_block", "honey_block");
+    private static final List<String> DIFFUSING_SUFFIXES = List.of("_leaves");
+
+    private static final Map<String, Integer> EMISSIONS = Map.ofEntries(
+            Map.entry("glowstone", 15),
+            Map.entry("sea_lantern", 15),
+            Map.entry("lantern", 15),
+            Map.entry("jack_o_lantern", 15),
+            Map.entry("shroomlight", 15),
+            Map.entry("lava", 15),
+            Map.entry("beacon", 15),
+            Map.entry("fire", 15),
+            Map.entry("campfire", 15),
+            Map.entry("redstone_lamp", 15),
+            Map.entry("end_gateway", 15),
+            Map.entry("ochre_froglight", 15),
+            Map.entry("verdant_froglight", 15),
+            Map.entry("pearlescent_froglight", 15),
+            Map.entry("torch", 14),
+            Map.entry("wall_torch", 14),
+            Map.entry("end_rod", 14),
+            Map.entry("furnace", 13),
+            Map.entry("blast_furnace", 13),
+            Map.entry("smoker", 13),
+            Map.entry("nether_portal", 11),
+            Map.entry("soul_torch", 10),
+            Map.entry("soul_wall_torch", 10),
+            Map.entry("soul_lantern", 10),
+            Map.entry("soul_campfire", 10),
+            Map.entry("soul_fire", 10),
+            Map.entry("glow_lichen", 7),
+            Map.entry("redstone_torch", 7),
+            Map.entry("redstone_wall_torch", 7)
+    );
+
+    private static volatile BlockLightProperties[] cache = new BlockLightProperties[256];
+
+    /**
+     * Gets the properties of the state with the given id.
+     *
+     * @param id the {@link BlockStateRegistry} id of the state
+     * @return the properties of the state
+     */
+    public static BlockLightProperties get(int id) {
+        BlockLightProperties[] cache = BlockLightProperties.cache;
+        if (id < cache.length) {
+            BlockLightProperties properties = cache[id];
+            if (properties != null) {
+                return properties;
+            }
+        }
+
+        return compute(id);
+    }
+
+    public static BlockLightProperties get(BlockState state) {
+        return get(BlockStateRegistry.getId(state));
+    }
+
+    private static synchronized BlockLightProperties compute(int id) {
+        BlockLightProperties[] cache = BlockLightProperties.cache;
+        if (id >= cache.length) {
+            cache = Arrays.copyOf(cache, Math.max(cache.length * 2, id + 1));
+        }
+
+        BlockLightProperties properties = cache[id];
+        if (properties == null) {
+            properties = of(BlockStateRegistry.getState(id));
+            cache[id] = properties;
+        }
+
+        BlockLightProperties.cache = cache;
+        return properties;
+    }
+
+    private static BlockLightProperties of(BlockState state) {
+        String identifier = state.getIdentifier();
+        String name = identifier.substring(identifier.indexOf(':') + 1);
+        if (AIR_BLOCKS.contains(name)) {
+            return AIR;
+        }
+
+        int emission = getEmission(state, name);
+        boolean waterlogged = "true".equals(String.valueOf(state.getProperties().get("waterlogged")));
+
+        if (PASSABLE_BLOCKS.contains(name) || endsWithAny(name, PASSABLE_SUFFIXES)) {
+            return waterlogged ? new BlockLightProperties(1, emission, false, true) : new BlockLightProperties(0, emission, false, false);
+        }
+
+        if (TRANSPARENT_BLOCKS.contains(name) || endsWithAny(name, TRANSPARENT_SUFFIXES) || startsWithAny(name, TRANSPARENT_PREFIXES)) {
+            return new BlockLightProperties(waterlogged ? 1 : 0, emission, false, true);
+        }
+
+        if (DIFFUSING_BLOCKS.contains(name) || name.equals("lava") || endsWithAny(name, DIFFUSING_SUFFIXES)) {
+            return new BlockLightProperties(1, emission, false, true);
+        }
+
+        return new BlockLightProperties(15, emission, false, true);
+    }
+
+    private static int getEmission(BlockState state, String name) {
+        Object lit = state.getProperties().get("lit");
+        if (lit != null && !"true".equals(String.valueOf(lit))) {
+            return 0;
+        }
+
+        if (name.endsWith("_candle") || name.equals("candle")) {
+            // Each lit candle adds 3 light, up to 12 for four candles
+            Object candles = state.getProperties().get("candles");
+            return lit == null ? 0 : 3 * (candles == null ? 1 : Integer.parseInt(String.valueOf(candles)));
+        }
+
+        if (name.equals("light")) {
+            Object level = state.getProperties().get("level");
+            return level == null ? 15 : Integer.parseInt(String.valueOf(level));
+        }
+
+        return EMISSIONS.getOrDefault(name, 0);
+    }
+
+    private static boolean endsWithAny(String name, List<String> suffixes) {
+        for (String suffix : suffixes) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean startsWithAny(String name, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package me.redned.simcraft.world.light;
+
+/**
+ * The precomputed light and heightmaps of a chunk.
+ * <p>
+ * Light is stored per section as nibble arrays in the layout
+ * used by Anvil chunks, with a null array wherever the light
+ * of a section can be left out. Heightmaps hold the height
+ * above the bottom of the world of the first empty block
+ * above the highest matching block in each column, indexed
+ * by {@code (z << 4) | x}.
+ *
+ * @param skyLight the sky light of each section, from the lowest section up
+ * @param blockLight the block light of each section, from the lowest section up
+ * @param motionBlocking the height of the highest block that blocks movement or holds a fluid in each column
+ * @param worldSurface the height of the highest non-air block in each column
+ */
+public record ChunkLight(byte[][] skyLight, byte[][] blockLight, int[] motionBlocking, int[] worldSurface) {
+}
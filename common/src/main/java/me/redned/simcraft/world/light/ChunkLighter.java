@@ -0,0 +1,311 @@
+package me.redned.simcraft.world.light;
+
+import me.redned.simcraft.world.ChunkSection;
+import me.redned.simcraft.world.WorldChunk;
+
+import java.util.Arrays;
+
+/**
+ * Computes the sky light, block light and heightmaps of a chunk,
+ * so chunks can be written fully lit and loaded without the server
+ * having to light them first.
+ * <p>
+ * Sky light shines straight down each column until it reaches a
+ * block that blocks light, and both sky and block light are then
+ * spread out one block at a time with a breadth first search,
+ * dropping by at least one level per block.
+ * <p>
+ * Light never spreads further than 15 blocks, so a chunk is lit
+ * together with the eight chunks around it, giving the same light
+ * as lighting the whole world at once. Missing neighbors are
+ * treated as empty.
+ */
+public final class ChunkLighter {
+    private static final int MAX_LIGHT = 15;
+    private static final int COLUMNS = ChunkSection.SIZE * ChunkSection.SIZE;
+    private static final int NIBBLE_ARRAY_SIZE = ChunkSection.VOLUME / 2;
+
+    // The chunk and its neighbors are lit as one area, three chunks across
+    private static final int AREA_SIZE = ChunkSection.SIZE * 3;
+    private static final int AREA_COLUMNS = AREA_SIZE * AREA_SIZE;
+
+    private ChunkLighter() {
+    }
+
+    /**
+     * Lights the given chunk along with its neighbors. Each
+     * chunk is locked in turn while its blocks are read, so
+     * callers must not hold the lock of any chunk.
+     *
+     * @param chunks the chunk to light and its neighbors, indexed by {@code (z + 1) * 3 + (x + 1)} relative to the chunk, with null for missing neighbors
+     * @return the light and heightmaps of the chunk
+     */
+    public static ChunkLight light(WorldChunk[] chunks) {
+        WorldChunk chunk = chunks[4];
+        int sectionCount = chunk.getSections().length;
+        int height = sectionCount * ChunkSection.SIZE;
+
+        byte[] opacity = new byte[height * AREA_COLUMNS];
+        byte[] skyLight = new byte[height * AREA_COLUMNS];
+        byte[] blockLight = new byte[height * AREA_COLUMNS];
+        int[] motionBlocking = new int[COLUMNS];
+        int[] worldSurface = new int[COLUMNS];
+
+        IntQueue queue = new IntQueue();
+
+        // The highest block that any light is blocked by
+        int maxShadedY = -1;
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] == null) {
+                continue;
+            }
+
+            int offset = (i / 3) * ChunkSection.SIZE * AREA_SIZE + (i % 3) * ChunkSection.SIZE;
+            synchronized (chunks[i]) {
+                // Heightmaps are only needed for the chunk being lit
+                maxShadedY = Math.max(maxShadedY, readChunk(chunks[i], offset, opacity, blockLight, queue,
+                        i == 4 ? motionBlocking : null, i == 4 ? worldSurface : null));
+            }
+        }
+
+        boolean emitting = !queue.isEmpty();
+        propagate(blockLight, opacity, height, queue);
+
+        // Everything above the highest shaded block is fully lit, so only light below it
+        Arrays.fill(skyLight, (maxShadedY + 1) * AREA_COLUMNS, skyLight.length, (byte) MAX_LIGHT);
+        for (int column = 0; column < AREA_COLUMNS; column++) {
+            int level = MAX_LIGHT;
+            for (int y = maxShadedY; y >= 0 && level > 0; y--) {
+                int index = y * AREA_COLUMNS + column;
+                level = Math.max(0, level - opacity[index]);
+                skyLight[index] = (byte) level;
+            }
+        }
+
+        // Only spread light from blocks that can brighten one of their neighbors
+        for (int index = 0; index < Math.min(height, maxShadedY + 2) * AREA_COLUMNS; index++) {
+            if (skyLight[index] > 1 && canBrightenNeighbor(skyLight, opacity, height, index)) {
+                queue.add(index);
+            }
+        }
+
+        propagate(skyLight, opacity, height, queue);
+
+        byte[][] skySections = new byte[sectionCount][];
+        byte[][] blockSections = new byte[sectionCount][];
+        for (int sectionIndex = 0; sectionIndex < sectionCount; sectionIndex++) {
+            // Sections above every shaded block are left out, as missing sky light is taken from the sections above
+            if (sectionIndex * ChunkSection.SIZE <= maxShadedY) {
+                skySections[sectionIndex] = toNibbles(skyLight, sectionIndex);
+            }
+
+            // Missing block light is treated as dark, so only keep sections with any block light
+            if (emitting) {
+                byte[] nibbles = toNibbles(blockLight, sectionIndex);
+                blockSections[sectionIndex] = isEmpty(nibbles) ? null : nibbles;
+            }
+        }
+
+        return new ChunkLight(skySections, blockSections, motionBlocking, worldSurface);
+    }
+
+    /**
+     * Reads the opacity and light emission of every block in a chunk
+     * into the area being lit, along with the heightmaps of the chunk
+     * if they are given.
+     *
+     * @return the highest block in the chunk that light is blocked by, or -1 if there is none
+     */
+    private static int readChunk(WorldChunk chunk, int offset, byte[] opacity, byte[] blockLight, IntQueue queue, int[] motionBlocking, int[] worldSurface) {
+        int maxShadedY = -1;
+        for (int sectionIndex = 0; sectionIndex < chunk.getSections().length; sectionIndex++) {
+            ChunkSection section = chunk.getSections()[sectionIndex];
+            if (section == null) {
+                continue;
+            }
+
+            if (section.isUniform()) {
+                BlockLightProperties properties = BlockLightProperties.get(section.getUniformState());
+                if (properties.air()) {
+                    continue;
+                }
+
+                int top = (sectionIndex + 1) * ChunkSection.SIZE;
+                for (int y = sectionIndex * ChunkSection.SIZE; y < top; y++) {
+                    for (int z = 0; z < ChunkSection.SIZE; z++) {
+                        int row = y * AREA_COLUMNS + offset + z * AREA_SIZE;
+                        Arrays.fill(opacity, row, row + ChunkSection.SIZE, (byte) properties.opacity());
+                        if (properties.emission() > 0) {
+                            Arrays.fill(blockLight, row, row + ChunkSection.SIZE, (byte) properties.emission());
+                            for (int index = row; index < row + ChunkSection.SIZE; index++) {
+                                queue.add(index);
+                            }
+                        }
+                    }
+                }
+
+                if (worldSurface != null) {
+                    for (int column = 0; column < COLUMNS; column++) {
+                        worldSurface[column] = Math.max(worldSurface[column], top);
+                        if (properties.motionBlocking()) {
+                            motionBlocking[column] = Math.max(motionBlocking[column], top);
+                        }
+                    }
+                }
+
+                if (properties.opacity() > 0) {
+                    maxShadedY = Math.max(maxShadedY, top - 1);
+                }
+
+                continue;
+            }
+
+            for (int index = 0; index < ChunkSection.VOLUME; index++) {
+                BlockLightProperties properties = BlockLightProperties.get(section.getStateId(index));
+                if (properties.air()) {
+                    continue;
+                }
+
+                int column = index & (COLUMNS - 1);
+                int y = sectionIndex * ChunkSection.SIZE + (index >> 8);
+                int areaIndex = y * AREA_COLUMNS + offset + (column >> 4) * AREA_SIZE + (column & 15);
+
+                opacity[areaIndex] = (byte) properties.opacity();
+                if (worldSurface != null) {
+                    worldSurface[column] = Math.max(worldSurface[column], y + 1);
+                    if (properties.motionBlocking()) {
+                        motionBlocking[column] = Math.max(motionBlocking[column], y + 1);
+                    }
+                }
+
+                if (properties.opacity() > 0) {
+                    maxShadedY = Math.max(maxShadedY, y);
+                }
+
+                if (properties.emission() > 0) {
+                    blockLight[areaIndex] = (byte) properties.emission();
+                    queue.add(areaIndex);
+                }
+            }
+        }
+
+        return maxShadedY;
+    }
+
+    private static void propagate(byte[] light, byte[] opacity, int height, IntQueue queue) {
+        while (!queue.isEmpty()) {
+            int index = queue.poll();
+            int level = light[index];
+            if (level <= 1) {
+                continue;
+            }
+
+            int x = index % AREA_SIZE;
+            int z = (index / AREA_SIZE) % AREA_SIZE;
+            int y = index / AREA_COLUMNS;
+
+            if (x > 0) {
+                spread(light, opacity, queue, index - 1, level);
+            }
+            if (x < AREA_SIZE - 1) {
+                spread(light, opacity, queue, index + 1, level);
+            }
+            if (z > 0) {
+                spread(light, opacity, queue, index - AREA_SIZE, level);
+            }
+            if (z < AREA_SIZE - 1) {
+                spread(light, opacity, queue, index + AREA_SIZE, level);
+            }
+            if (y > 0) {
+                spread(light, opacity, queue, index - AREA_COLUMNS, level);
+            }
+            if (y < height - 1) {
+                spread(light, opacity, queue, index + AREA_COLUMNS, level);
+            }
+        }
+    }
+
+    private static void spread(byte[] light, byte[] opacity, IntQueue queue, int index, int level) {
+        int spreadLevel = level - Math.max(1, opacity[index]);
+        if (spreadLevel > light[index]) {
+            light[index] = (byte) spreadLevel;
+            queue.add(index);
+        }
+    }
+
+    private static boolean canBrightenNeighbor(byte[] light, byte[] opacity, int height, int index) {
+        int x = index % AREA_SIZE;
+        int z = (index / AREA_SIZE) % AREA_SIZE;
+        int y = index / AREA_COLUMNS;
+
+        return (x > 0 && canBrighten(light, opacity, index - 1, light[index]))
+                || (x < AREA_SIZE - 1 && canBrighten(light, opacity, index + 1, light[index]))
+                || (z > 0 && canBrighten(light, opacity, index - AREA_SIZE, light[index]))
+                || (z < AREA_SIZE - 1 && canBrighten(light, opacity, index + AREA_SIZE, light[index]))
+                || (y > 0 && canBrighten(light, opacity, index - AREA_COLUMNS, light[index]))
+                || (y < height - 1 && canBrighten(light, opacity, index + AREA_COLUMNS, light[index]));
+    }
+
+    private static boolean canBrighten(byte[] light, byte[] opacity, int index, int level) {
+        return level - Math.max(1, opacity[index]) > light[index];
+    }
+
+    private static byte[] toNibbles(byte[] light, int sectionIndex) {
+        // Only the chunk in the middle of the area is kept
+        int offset = ChunkSection.SIZE * AREA_SIZE + ChunkSection.SIZE;
+        byte[] nibbles = new byte[NIBBLE_ARRAY_SIZE];
+        for (int i = 0; i < ChunkSection.VOLUME; i += 2) {
+            int y = sectionIndex * ChunkSection.SIZE + (i >> 8);
+            int index = y * AREA_COLUMNS + offset + ((i >> 4) & 15) * AREA_SIZE + (i & 15);
+            nibbles[i >> 1] = (byte) (light[index] | (light[index + 1] << 4));
+        }
+
+        return nibbles;
+    }
+
+    private static boolean isEmpty(byte[] nibbles) {
+        for (byte nibble : nibbles) {
+            if (nibble != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * A growable queue of ints, used to avoid boxing every
+     * block position that light is spread from.
+     */
+    private static class IntQueue {
+        private int[] values = new int[1024];
+        private int head;
+        private int size;
+
+        public void add(int value) {
+            if (this.size == this.values.length) {
+                int[] values = new int[this.values.length * 2];
+                for (int i = 0; i < this.size; i++) {
+                    values[i] = this.values[(this.head + i) & (this.values.length - 1)];
+                }
+
+                this.values = values;
+                this.head = 0;
+            }
+
+            this.values[(this.head + this.size) & (this.values.length - 1)] = value;
+            this.size++;
+        }
+
+        public int poll() {
+            int value = this.values[this.head];
+            this.head = (this.head + 1) & (this.values.length - 1);
+            this.size--;
+            return value;
+        }
+
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package me.redned.simcraft.world.light;
+
+import me.redned.simcraft.world.WorldChunk;
+
+/**
+ * Looks up the chunks around a chunk being lit.
+ */
+public interface ChunkNeighbours {
+
+    /**
+     * Gets the chunk at the given position.
+     *
+     * @param chunkX the x position of the chunk
+     * @param chunkZ the z position of the chunk
+     * @return the chunk, or null if there is no chunk at the given position
+     */
+    WorldChunk getChunk(int chunkX, int chunkZ);
+
+    /**
+     * Gets whether the chunk at the given position will not
+     * change anymore, so light read from it is final.
+     *
+     * @param chunkX the x position of the chunk
+     * @param chunkZ the z position of the chunk
+     * @return whether the chunk is final
+     */
+    boolean isFinal(int chunkX, int chunkZ);
+}
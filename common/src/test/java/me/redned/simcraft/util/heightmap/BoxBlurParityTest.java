@@ -0,0 +1,87 @@
+package me.redned.simcraft.util.heightmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares box blur smoothing against the original iterative
+ * smoothing passes it approximates.
+ */
+public class BoxBlurParityTest {
+    private static final int SIZE = 64;
+    private static final int PASSES = 50;
+
+    // Box blurs only approximate the iterative passes, these are the largest differences allowed
+    private static final float MAX_ERROR = 1.5F;
+    private static final double MAX_MEAN_ERROR = 0.15;
+    // Blurring in blocks only differs from blurring the whole heightmap by rounding
+    private static final float MAX_BLOCK_ERROR = 0.001F;
+
+    @Test
+    public void matchesIterativeSmoothing() {
+        for (long seed = 1; seed <= 4; seed++) {
+            float[][] rawHeightMap = createTerrain(seed);
+            HeightMap iterative = new HeightMap(rawHeightMap, SIZE, SIZE, PASSES, SmoothingMode.ITERATIVE);
+            HeightMap boxBlur = new HeightMap(rawHeightMap, SIZE, SIZE, PASSES, SmoothingMode.BOX_BLUR);
+
+            float maxError = 0;
+            double totalError = 0;
+            for (int z = 0; z < iterative.getDepth(); z++) {
+                for (int x = 0; x < iterative.getWidth(); x++) {
+                    float error = Math.abs(iterative.get(x, z) - boxBlur.get(x, z));
+                    maxError = Math.max(maxError, error);
+                    totalError += error;
+                }
+            }
+
+            double meanError = totalError / iterative.getNumberOfPoints();
+            assertTrue(maxError <= MAX_ERROR, "Maximum error of " + maxError + " with seed " + seed + " is above " + MAX_ERROR);
+            assertTrue(meanError <= MAX_MEAN_ERROR, "Mean error of " + meanError + " with seed " + seed + " is above " + MAX_MEAN_ERROR);
+        }
+    }
+
+    @Test
+    public void blockBlurMatchesWholeBlur() {
+        for (long seed = 1; seed <= 4; seed++) {
+            float[][] rawHeightMap = createTerrain(seed);
+            HeightMap whole = new HeightMap(rawHeightMap, SIZE, SIZE, PASSES, SmoothingMode.BOX_BLUR, HeightStorage.Type.FLOAT);
+            HeightMap blocks = new HeightMap(rawHeightMap, SIZE, SIZE, PASSES, SmoothingMode.BOX_BLUR, HeightStorage.Type.COMPACT);
+
+            for (int z = 0; z < whole.getDepth(); z++) {
+                for (int x = 0; x < whole.getWidth(); x++) {
+                    // Compact heights are rounded down to the nearest 1/16
+                    float error = whole.get(x, z) - blocks.get(x, z);
+                    assertTrue(error >= -MAX_BLOCK_ERROR && error < 1 / 16.0F + MAX_BLOCK_ERROR, "Error of " + error + " at " + x + ", " + z + " with seed " + seed);
+                }
+            }
+
+            assertEquals(whole.getMin(), blocks.getMin(), MAX_BLOCK_ERROR);
+            assertEquals(whole.getMax(), blocks.getMax(), MAX_BLOCK_ERROR);
+        }
+    }
+
+    /**
+     * Creates rolling terrain with occasional raised tiles,
+     * similar in range to a SimCity heightmap.
+     */
+    private static float[][] createTerrain(long seed) {
+        Random random = new Random(seed);
+        float[][] heights = new float[SIZE][SIZE];
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                double height = 250 + 60 * Math.sin(x / 7.0 + seed) + 40 * Math.cos(z / 5.0);
+                if (random.nextInt(10) == 0) {
+                    height += random.nextInt(40);
+                }
+
+                heights[z][x] = (float) height;
+            }
+        }
+
+        return heights;
+    }
+}
@@ -0,0 +1,84 @@
+package me.redned.simcraft.util.heightmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactHeightStorageTest {
+    private static final int WIDTH = 100;
+    private static final int DEPTH = 70;
+
+    @Test
+    public void keepsWholeBlockHeights() {
+        Random random = new Random(1);
+        float[] heights = new float[WIDTH * DEPTH];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = 200 + random.nextFloat() * 300;
+        }
+
+        CompactHeightStorage storage = new CompactHeightStorage(heights, WIDTH, DEPTH);
+        for (int z = 0; z < DEPTH; z++) {
+            for (int x = 0; x < WIDTH; x++) {
+                float height = heights[z * WIDTH + x];
+                float stored = storage.get(x, z);
+                assertTrue(height - stored >= 0 && height - stored < 1 / 16.0F, "Stored " + stored + " for " + height);
+
+                // Block heights are the stored heights divided and rounded down
+                assertEquals((int) Math.floor(height), (int) Math.floor(stored));
+                assertEquals((int) Math.floor(height / 2), (int) Math.floor(stored / 2));
+            }
+        }
+    }
+
+    @Test
+    public void copiesHeights() {
+        Random random = new Random(2);
+        float[] heights = new float[WIDTH * DEPTH];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = 200 + random.nextFloat() * 300;
+        }
+
+        HeightStorage copy = HeightStorage.Type.COMPACT.copy(new FloatHeightStorage(heights, WIDTH, DEPTH));
+        CompactHeightStorage storage = new CompactHeightStorage(heights, WIDTH, DEPTH);
+        for (int z = 0; z < DEPTH; z++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(storage.get(x, z), copy.get(x, z));
+            }
+        }
+    }
+
+    @Test
+    public void changesTileForm() {
+        float[] heights = new float[WIDTH * DEPTH];
+        Arrays.fill(heights, 300);
+
+        CompactHeightStorage storage = new CompactHeightStorage(heights, WIDTH, DEPTH);
+        long uniformFootprint = storage.getMemoryFootprint();
+
+        // Small changes fit in a byte above the lowest height in the tile
+        storage.set(3, 4, 305.5F);
+        assertEquals(305.5F, storage.get(3, 4));
+        assertEquals(300.0F, storage.get(4, 4));
+
+        // Larger changes need the full range
+        storage.set(5, 4, 1000.0F);
+        assertEquals(1000.0F, storage.get(5, 4));
+        assertEquals(305.5F, storage.get(3, 4));
+        assertEquals(300.0F, storage.get(4, 4));
+        assertTrue(storage.getMemoryFootprint() > uniformFootprint);
+
+        // Flattening the tile again keeps its heights
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                storage.set(x, z, 310.0F);
+            }
+        }
+
+        assertEquals(310.0F, storage.get(5, 4));
+        assertEquals(300.0F, storage.get(16, 4));
+    }
+}
@@ -0,0 +1,107 @@
+package me.redned.simcraft.util.heightmap;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Heightmap kernels using the Vector API. Only loaded when
+ * the {@code jdk.incubator.vector} module is enabled.
+ */
+class VectorHeightMapKernels implements HeightMapKernels {
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    // Sums are kept as doubles, so floats are loaded at half width to widen into a full double vector
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> HALF_FLOAT_SPECIES = VectorSpecies.of(float.class, VectorShape.forBitSize(DOUBLE_SPECIES.vectorBitSize() / 2));
+
+    @Override
+    public void minMax(float[] data, float[] result) {
+        FloatVector min = FloatVector.broadcast(FLOAT_SPECIES, Float.POSITIVE_INFINITY);
+        FloatVector max = FloatVector.broadcast(FLOAT_SPECIES, Float.NEGATIVE_INFINITY);
+
+        int i = 0;
+        int bound = FLOAT_SPECIES.loopBound(data.length);
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector vector = FloatVector.fromArray(FLOAT_SPECIES, data, i);
+            min = min.min(vector);
+            max = max.max(vector);
+        }
+
+        float minValue = min.reduceLanes(VectorOperators.MIN);
+        float maxValue = max.reduceLanes(VectorOperators.MAX);
+        for (; i < data.length; i++) {
+            minValue = Math.min(minValue, data[i]);
+            maxValue = Math.max(maxValue, data[i]);
+        }
+
+        result[0] = minValue;
+        result[1] = maxValue;
+    }
+
+    @Override
+    public void smoothColumns(float[] data, int width, int depth) {
+        // Each column only depends on itself, so a row of columns can be smoothed at once
+        int bound = FLOAT_SPECIES.loopBound(width);
+        for (int z = 1; z < depth - 1; z++) {
+            int row = z * width;
+
+            int x = 0;
+            for (; x < bound; x += FLOAT_SPECIES.length()) {
+                FloatVector prev = FloatVector.fromArray(FLOAT_SPECIES, data, row - width + x);
+                FloatVector y = FloatVector.fromArray(FLOAT_SPECIES, data, row + x);
+                FloatVector next = FloatVector.fromArray(FLOAT_SPECIES, data, row + width + x);
+                FloatVector yAvg = next.add(prev).div(2f);
+                y.add(yAvg).div(2f).intoArray(data, row + x);
+            }
+
+            for (; x < width; x++) {
+                float prev = data[row - width + x];
+                float y = data[row + x];
+                float next = data[row + width + x];
+                float yAvg = (next + prev) / 2f;
+                data[row + x] = (y + yAvg) / 2f;
+            }
+        }
+    }
+
+    @Override
+    public void accumulate(double[] sums, float[] data, int offset, int length) {
+        int i = 0;
+        int bound = DOUBLE_SPECIES.loopBound(length);
+        for (; i < bound; i += DOUBLE_SPECIES.length()) {
+            DoubleVector sum = DoubleVector.fromArray(DOUBLE_SPECIES, sums, i);
+            sum.add(load(data, offset + i)).intoArray(sums, i);
+        }
+
+        for (; i < length; i++) {
+            sums[i] += data[offset + i];
+        }
+    }
+
+    @Override
+    public void slide(double[] sums, float[] data, int addOffset, int removeOffset, float[] target, int targetOffset, int length, double scale) {
+        int i = 0;
+        int bound = DOUBLE_SPECIES.loopBound(length);
+        for (; i < bound; i += DOUBLE_SPECIES.length()) {
+            DoubleVector sum = DoubleVector.fromArray(DOUBLE_SPECIES, sums, i);
+            ((FloatVector) sum.mul(scale).convertShape(VectorOperators.D2F, HALF_FLOAT_SPECIES, 0)).intoArray(target, targetOffset + i);
+
+            // Subtract in float precision first, matching the scalar kernel
+            FloatVector add = FloatVector.fromArray(HALF_FLOAT_SPECIES, data, addOffset + i);
+            FloatVector remove = FloatVector.fromArray(HALF_FLOAT_SPECIES, data, removeOffset + i);
+            sum.add((DoubleVector) add.sub(remove).convertShape(VectorOperators.F2D, DOUBLE_SPECIES, 0)).intoArray(sums, i);
+        }
+
+        for (; i < length; i++) {
+            target[targetOffset + i] = (float) (sums[i] * scale);
+            sums[i] += data[addOffset + i] - data[removeOffset + i];
+        }
+    }
+
+    private static DoubleVector load(float[] data, int offset) {
+        return (DoubleVector) FloatVector.fromArray(HALF_FLOAT_SPECIES, data, offset).convertShape(VectorOperators.F2D, DOUBLE_SPECIES, 0);
+    }
+}
@@ -2,6 +2,7 @@ package me.redned.simcraft;
 
 import com.formdev.flatlaf.FlatDarkLaf;
 import com.formdev.flatlaf.themes.FlatMacDarkLaf;
+import me.redned.simcraft.city.exemplar.ExemplarIndex;
 import me.redned.simcraft.city.world.CityRegion;
 import me.redned.simcraft.ui.BuildCitiesPanel;
 import me.redned.simcraft.ui.CityProgressDialog;
@@ -11,7 +12,6 @@ import me.redned.simcraft.util.FileUtil;
 import me.redned.simcraft.util.GameInstallUtil;
 import me.redned.simcraft.util.OS;
 import me.redned.simcraft.util.OSColorSchemeDetector;
-import me.redned.simreader.sc4.storage.exemplar.ExemplarFile;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
@@ -120,9 +120,9 @@ public class SimCraftGUI {
 
             CityProgressDialog progressDialog = new CityProgressDialog(frame);
 
-            ExemplarFile exemplarFile = new ExemplarFile(installDirectory.toPath().resolve("SimCity_1.dat"));
+            ExemplarIndex exemplarIndex = SimCraft.loadExemplarIndex(installDirectory.toPath().resolve("SimCity_1.dat"));
 
-            SimCraft simCraft = new SimCraft(regionDirectory.toPath(), exemplarFile, exportDirectory.toPath(), false);
+            SimCraft simCraft = new SimCraft(regionDirectory.toPath(), exemplarIndex, exportDirectory.toPath(), SimCraftSettings.DEFAULT);
             simCraft.buildRegions(progressDialog::setState);
 
             SwingUtilities.invokeLater(progressDialog::setSaving);
@@ -4,6 +4,7 @@ import me.redned.simcraft.SimCraft;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
 import java.util.Locale;
 
 public class CityProgressDialog extends JDialog {
@@ -11,7 +12,7 @@ public class CityProgressDialog extends JDialog {
 
     public CityProgressDialog(JFrame frame) {
         this.setLayout(new FlowLayout());
-        this.setSize(200, 110);
+        this.setSize(300, 110);
         this.setLocationRelativeTo(frame);
     }
 
@@ -62,9 +63,20 @@ public class CityProgressDialog extends JDialog {
         @Override
         protected Void doInBackground() throws Exception {
             while (!isCancelled()) {
-                CityProgressDialog.this.setTitle("City: " + this.state.getCityName() + " (" + this.state.getCurrentRegion() + "/" + this.state.getRegions() + ")");
-                this.stateLabel.setText("Building " + this.state.getBuildState().name().toLowerCase(Locale.ROOT) + "...");
-                this.progressLabel.setText("Stage progress: " + ((int) (this.state.getProgress() * 100) + "%"));
+                CityProgressDialog.this.setTitle("Cities: " + this.state.getCompletedRegions() + "/" + this.state.getRegions() + " complete");
+
+                // Multiple cities may be building at once, so display the first active one
+                // and let the progress bar reflect the progress of every region
+                List<SimCraft.CityBuildState> activeCities = this.state.getActiveCities();
+                if (activeCities.isEmpty()) {
+                    this.stateLabel.setText("Initializing...");
+                } else {
+                    SimCraft.CityBuildState city = activeCities.get(0);
+                    String others = activeCities.size() > 1 ? " (+" + (activeCities.size() - 1) + " more)" : "";
+                    this.stateLabel.setText(city.getCityName() + ": building " + city.getBuildState().name().toLowerCase(Locale.ROOT) + "..." + others);
+                }
+
+                this.progressLabel.setText("Total progress: " + ((int) (this.state.getProgress() * 100) + "%"));
 
                 this.progressBar.setValue((int) (this.state.getProgress() * 100));
 